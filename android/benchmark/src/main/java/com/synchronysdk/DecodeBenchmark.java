@@ -0,0 +1,109 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//checkReadSamples / readSamples per sample, lost samples are counted as decoded samples, they are queued as one range per gap
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+  static final int SAMPLES_PER_OP = 1000;
+  static final int LOSS_PATTERN_SIZE = 1024;
+
+  @Param({"8", "16", "24"})
+  public int resolutionBits;
+
+  @Param({"1", "8", "32"})
+  public int channelCount;
+
+  //0 enables all channels, otherwise channels are spread evenly over the mask
+  @Param({"0"})
+  public int activeChannelCount;
+
+  @Param({"5", "25"})
+  public int packageSampleCount;
+
+  //percentage of packages missing, gaps are filled by the decoder
+  @Param({"0", "50"})
+  public int lossPercent;
+
+  private SampleDecoder decoder;
+  private byte[] packet;
+  private boolean[] lossPattern;
+  private int packageIndex;
+  private int packetCount;
+
+  @Setup
+  public void setup(){
+    SensorData sensorData = new SensorData();
+    sensorData.dataType = SensorProfile.NotifDataType.NTF_EEG;
+    sensorData.sampleRate = 1000;
+    sensorData.resolutionBits = resolutionBits;
+    sensorData.channelCount = channelCount;
+    int enabledCount = activeChannelCount > 0 ? Math.min(activeChannelCount, channelCount) : channelCount;
+    for (int index = 0;index < enabledCount;++index){
+      sensorData.channelMask |= 1L << (index * channelCount / enabledCount);
+    }
+    sensorData.packageSampleCount = packageSampleCount;
+    sensorData.K = 0.1;
+    sensorData.clear();
+
+    decoder = new SampleDecoder();
+    decoder.sensorData[SampleDecoder.DATA_TYPE_EEG] = sensorData;
+    //drain immediately so the ring never drops
+    decoder.listener = data -> data.ring.discardPending();
+    float[] impedance = new float[enabledCount];
+    float[] saturation = new float[enabledCount];
+    Arrays.fill(impedance, 1000f);
+    Arrays.fill(saturation, 10f);
+    decoder.impedance = new ImpedanceSnapshot(1, impedance, saturation);
+
+    Random random = new Random(1);
+    packet = new byte[3 + packageSampleCount * enabledCount * resolutionBits / 8];
+    packet[0] = SensorProfile.NotifDataType.NTF_EEG;
+    for (int index = 3;index < packet.length;++index){
+      packet[index] = (byte) random.nextInt();
+    }
+    lossPattern = new boolean[LOSS_PATTERN_SIZE];
+    for (int index = 0;index < LOSS_PATTERN_SIZE;++index){
+      lossPattern[index] = random.nextInt(100) < lossPercent;
+    }
+    packageIndex = 0;
+    packetCount = 0;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES_PER_OP)
+  public SampleDecoder decode(){
+    for (int sampleCount = 0;sampleCount < SAMPLES_PER_OP;sampleCount += packageSampleCount){
+      packageIndex = (packageIndex + 1) & 0xffff;
+      if (lossPattern[packetCount++ & (LOSS_PATTERN_SIZE - 1)]){
+        continue;
+      }
+      packet[1] = (byte) packageIndex;
+      packet[2] = (byte) (packageIndex >> 8);
+      decoder.processPacket(packet, packet.length);
+    }
+    return decoder;
+  }
+}
@@ -0,0 +1,53 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//impedance / saturation package parsing, one package per op
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImpedanceBenchmark {
+  @Param({"8", "32"})
+  public int channelCount;
+
+  private SampleDecoder decoder;
+  private byte[] packet;
+
+  @Setup
+  public void setup(){
+    decoder = new SampleDecoder();
+    packet = new byte[3 + channelCount * 8];
+    packet[0] = SensorProfile.NotifDataType.NTF_IMPEDANCE;
+    for (int index = 0;index < channelCount * 2;++index){
+      int bits = Float.floatToIntBits(1000f + index);
+      int offset = 3 + index * 4;
+      packet[offset] = (byte) bits;
+      packet[offset + 1] = (byte) (bits >> 8);
+      packet[offset + 2] = (byte) (bits >> 16);
+      packet[offset + 3] = (byte) (bits >> 24);
+    }
+  }
+
+  @Benchmark
+  public SampleDecoder parseImpedance(){
+    decoder.processPacket(packet, packet.length);
+    return decoder;
+  }
+}
@@ -0,0 +1,123 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//end to end scaling over devices: packet pipeline, decoder thread per device and shared emission workers
+//one op sends PACKETS_PER_DEVICE packets to every device and waits until all samples are emitted,
+//so an op covers deviceCount * PACKETS_PER_DEVICE * PACKAGE_SAMPLE_COUNT samples
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiDeviceBenchmark {
+  static final int PACKETS_PER_DEVICE = 100;
+  static final int PACKAGE_SAMPLE_COUNT = 10;
+  static final int CHANNEL_COUNT = 8;
+  //same as SynchronySDKReactNativeModule.MAX_EMIT_SAMPLES
+  static final int MAX_EMIT_SAMPLES = 1024;
+
+  @Param({"1", "2", "4", "8"})
+  public int deviceCount;
+
+  private EmissionScheduler emissionScheduler;
+  private PacketPipeline[] pipelines;
+  private AtomicLong[] emittedSamples;
+  private byte[] packet;
+  private int packageIndex;
+  private long expectedSamples;
+
+  @Setup
+  public void setup(){
+    emissionScheduler = new EmissionScheduler("benchmark-emit",
+      Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+    pipelines = new PacketPipeline[deviceCount];
+    emittedSamples = new AtomicLong[deviceCount];
+    for (int device = 0;device < deviceCount;++device){
+      SensorData sensorData = new SensorData();
+      sensorData.dataType = SensorProfile.NotifDataType.NTF_EEG;
+      sensorData.sampleRate = 1000;
+      sensorData.resolutionBits = 24;
+      sensorData.channelCount = CHANNEL_COUNT;
+      sensorData.channelMask = (1L << CHANNEL_COUNT) - 1;
+      sensorData.packageSampleCount = PACKAGE_SAMPLE_COUNT;
+      sensorData.K = 0.1;
+      sensorData.clear();
+
+      AtomicLong emitted = new AtomicLong();
+      emittedSamples[device] = emitted;
+      SampleDecoder decoder = new SampleDecoder();
+      decoder.sensorData[SampleDecoder.DATA_TYPE_EEG] = sensorData;
+      //stands in for emitSensorData: consumes at most MAX_EMIT_SAMPLES per run
+      EmissionScheduler.Task task = new EmissionScheduler.Task() {
+        @Override
+        boolean emit() {
+          SensorData.SampleRing ring = sensorData.ring;
+          int sampleCount = Math.min(ring.pendingSampleCount(), MAX_EMIT_SAMPLES);
+          ring.readPosition = ring.readPosition + sampleCount;
+          emitted.addAndGet(sampleCount);
+          return ring.pendingSampleCount() > 0;
+        }
+      };
+      decoder.listener = data -> emissionScheduler.schedule(task);
+      pipelines[device] = new PacketPipeline("benchmark-" + device, PacketPipeline.DEFAULT_CAPACITY,
+        decoder::processPacket);
+      pipelines[device].start();
+    }
+
+    Random random = new Random(1);
+    packet = new byte[3 + PACKAGE_SAMPLE_COUNT * CHANNEL_COUNT * 3];
+    packet[0] = SensorProfile.NotifDataType.NTF_EEG;
+    for (int index = 3;index < packet.length;++index){
+      packet[index] = (byte) random.nextInt();
+    }
+    packageIndex = 0;
+    expectedSamples = 0;
+  }
+
+  @TearDown
+  public void tearDown(){
+    for (PacketPipeline pipeline : pipelines){
+      pipeline.stop();
+    }
+    emissionScheduler.shutdown();
+  }
+
+  @Benchmark
+  public long sendAndEmit(){
+    for (int index = 0;index < PACKETS_PER_DEVICE;++index){
+      packageIndex = (packageIndex + 1) & 0xffff;
+      packet[1] = (byte) packageIndex;
+      packet[2] = (byte) (packageIndex >> 8);
+      for (PacketPipeline pipeline : pipelines){
+        pipeline.offer(packet);
+      }
+    }
+    expectedSamples += PACKETS_PER_DEVICE * PACKAGE_SAMPLE_COUNT;
+    for (AtomicLong emitted : emittedSamples){
+      while (emitted.get() < expectedSamples){
+        LockSupport.parkNanos(1000);
+      }
+    }
+    return expectedSamples;
+  }
+}
@@ -0,0 +1,119 @@
+package com.synchronysdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//simulated sensor through the packet pipeline, decoder thread and emission worker, as fast as the decoder takes frames
+//one op simulates SIMULATED_MS of EEG, starting FIRST_PACKAGE_INDEX so every op crosses the u16 package index wraparound,
+//faultPercent of the packets are lost in bursts, duplicated and truncated
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulatedSensorBenchmark {
+  static final int SIMULATED_MS = 10000;
+  static final int SAMPLE_RATE = 1000;
+  static final int PACKAGE_SAMPLE_COUNT = 10;
+  static final int FIRST_PACKAGE_INDEX = 65536 - SIMULATED_MS * SAMPLE_RATE / 1000 / PACKAGE_SAMPLE_COUNT / 2;
+
+  @Param({"8", "32"})
+  public int channelCount;
+
+  @Param({"0", "2"})
+  public double faultPercent;
+
+  private EmissionScheduler emissionScheduler;
+  private PacketPipeline pipeline;
+  private SampleDecoder decoder;
+  private SimulatedSensor sensor;
+  private volatile boolean finished;
+
+  @Setup
+  public void setup(){
+    emissionScheduler = new EmissionScheduler("benchmark-emit", 1);
+    decoder = new SampleDecoder();
+    //stands in for emitSensorData: consumes all pending samples and lost ranges
+    EmissionScheduler.Task task = new EmissionScheduler.Task() {
+      @Override
+      boolean emit() {
+        SensorData sensorData = decoder.sensorData[SampleDecoder.DATA_TYPE_EEG];
+        SensorData.SampleRing ring = sensorData != null ? sensorData.ring : null;
+        if (ring != null){
+          ring.discardPending();
+        }
+        return false;
+      }
+    };
+    decoder.listener = data -> emissionScheduler.schedule(task);
+    pipeline = new PacketPipeline("benchmark", PacketPipeline.DEFAULT_CAPACITY, decoder::processPacket);
+    pipeline.start();
+
+    SimulatedSensor.Config config = new SimulatedSensor.Config();
+    config.eegChannelCount = channelCount;
+    config.eegSampleRate = SAMPLE_RATE;
+    config.eegPackageSampleCount = PACKAGE_SAMPLE_COUNT;
+    config.imu = false;
+    config.impedanceIntervalMs = 0;
+    config.speed = 0;
+    config.durationMs = SIMULATED_MS;
+    config.firstPackageIndex = FIRST_PACKAGE_INDEX;
+    config.lossPercent = faultPercent;
+    config.lossBurst = 4;
+    config.duplicatePercent = faultPercent;
+    config.truncatePercent = faultPercent;
+    sensor = new SimulatedSensor(config);
+  }
+
+  @TearDown
+  public void tearDown(){
+    sensor.stop();
+    pipeline.stop();
+    emissionScheduler.shutdown();
+  }
+
+  @Benchmark
+  public long simulate(){
+    finished = false;
+    sensor.start(new SensorSource.Listener() {
+      @Override
+      public void onStream(SensorData sensorData) {
+        //the decoder expects the package index after the last one of the previous op otherwise
+        sensorData.lastPackageIndex = FIRST_PACKAGE_INDEX - 1;
+        decoder.sensorData[SampleDecoder.dataTypeIndex(sensorData.dataType)] = sensorData;
+      }
+
+      @Override
+      public boolean onFrame(byte[] data) {
+        return pipeline.offer(data);
+      }
+
+      @Override
+      public void onFinished(String errorMsg) {
+        finished = true;
+      }
+    });
+    while (!finished || pipeline.depth() > 0){
+      LockSupport.parkNanos(1000);
+    }
+    SensorData.SampleRing ring = decoder.sensorData[SampleDecoder.DATA_TYPE_EEG].ring;
+    while (ring.pendingSampleCount() > 0){
+      LockSupport.parkNanos(1000);
+    }
+    return ring.writePosition;
+  }
+}
@@ -0,0 +1,136 @@
+package com.synchronysdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+//simulated sensor as fast as the decoder takes frames through a small pipeline, drained by a consumer that stalls in bursts,
+//every sample index must be sent once or be in a lost range, lost ranges cover lost and dropped samples
+public class PacketPipelineStressTest {
+  static final int SIMULATED_MS = 60000;
+  static final int SAMPLE_RATE = 1000;
+  static final int PACKAGE_SAMPLE_COUNT = 10;
+  static final int FIRST_PACKAGE_INDEX = 65536 - SIMULATED_MS * SAMPLE_RATE / 1000 / PACKAGE_SAMPLE_COUNT / 2;
+
+  private final SampleDecoder decoder = new SampleDecoder();
+  private volatile SensorData stream;
+  private volatile boolean finished;
+  private volatile String failure;
+  //consumer thread only
+  private boolean started;
+  private int nextSampleIndex;
+  private long sentSamples;
+  private long rangeSamples;
+
+  //drains pending samples and lost ranges like the emission worker, checks they continue the previous ones
+  private void drain(SensorData.SampleRing ring){
+    int readPosition = ring.readPosition;
+    int writePosition = ring.writePosition;
+    int gapPosition = ring.gapReadPosition;
+    int gapEnd = gapPosition + ring.pendingGapCount(writePosition);
+    for (int position = readPosition;;++position){
+      for (;gapPosition != gapEnd && ring.gapPositions[gapPosition & (SensorData.SampleRing.GAP_CAPACITY - 1)] - position <= 0;++gapPosition){
+        int entry = gapPosition & (SensorData.SampleRing.GAP_CAPACITY - 1);
+        expect(ring.gapFirstIndices[entry], "lost range");
+        nextSampleIndex += ring.gapSampleCounts[entry];
+        rangeSamples += ring.gapSampleCounts[entry];
+      }
+      if (position == writePosition){
+        break;
+      }
+      expect(ring.sampleIndices[position & ring.slotMask], "sample");
+      ++nextSampleIndex;
+      ++sentSamples;
+    }
+    ring.gapReadPosition = gapEnd;
+    ring.readPosition = writePosition;
+  }
+
+  private void expect(int sampleIndex, String what){
+    if (!started){
+      started = true;
+      nextSampleIndex = sampleIndex;
+    }
+    if (sampleIndex != nextSampleIndex && failure == null){
+      failure = what + " " + sampleIndex + " does not continue at " + nextSampleIndex;
+    }
+  }
+
+  @Test
+  public void noSampleIsDuplicatedOrUnaccounted() throws InterruptedException{
+    PacketPipeline pipeline = new PacketPipeline("stress", 16, decoder::processPacket);
+    pipeline.start();
+
+    SimulatedSensor.Config config = new SimulatedSensor.Config();
+    config.eegChannelCount = 8;
+    config.eegSampleRate = SAMPLE_RATE;
+    config.eegPackageSampleCount = PACKAGE_SAMPLE_COUNT;
+    config.imu = false;
+    config.impedanceIntervalMs = 100;
+    config.speed = 0;
+    config.durationMs = SIMULATED_MS;
+    config.firstPackageIndex = FIRST_PACKAGE_INDEX;
+    config.lossPercent = 2;
+    config.lossBurst = 4;
+    config.duplicatePercent = 2;
+    config.truncatePercent = 1;
+    SimulatedSensor sensor = new SimulatedSensor(config);
+    sensor.start(new SensorSource.Listener() {
+      @Override
+      public void onStream(SensorData sensorData) {
+        sensorData.lastPackageIndex = FIRST_PACKAGE_INDEX - 1;
+        decoder.sensorData[SampleDecoder.dataTypeIndex(sensorData.dataType)] = sensorData;
+        stream = sensorData;
+      }
+
+      @Override
+      public boolean onFrame(byte[] data) {
+        return pipeline.offer(data);
+      }
+
+      @Override
+      public void onFinished(String errorMsg) {
+        finished = true;
+      }
+    });
+
+    Thread consumer = new Thread(() -> {
+      long round = 0;
+      while (!finished || pipeline.depth() > 0 || stream == null || stream.pendingSampleCount() > 0){
+        SensorData sensorData = stream;
+        SensorData.SampleRing ring = sensorData != null ? sensorData.ring : null;
+        if (ring != null){
+          drain(ring);
+        }
+        //stalls fill the ring so the decoder drops packages
+        LockSupport.parkNanos(++round % 64 == 0 ? 5_000_000L : 20_000L);
+      }
+      SensorData.SampleRing ring = stream.ring;
+      drain(ring);
+    }, "stress-consumer");
+    consumer.start();
+    consumer.join(60_000);
+    sensor.stop();
+    pipeline.stop();
+
+    assertEquals(null, failure);
+    assertTrue("consumer finished", !consumer.isAlive());
+    SensorData sensorData = stream;
+    StreamStats stats = decoder.stats[SampleDecoder.DATA_TYPE_EEG];
+    assertEquals(stats.get(StreamStats.DECODED_SAMPLES), sentSamples);
+    //the stream starts at sample 0, the decoder counter ends after the last package it decoded or dropped,
+    //a range dropped at the end waits for samples that never come
+    int endSampleIndex = sensorData.lastPackageCounter * PACKAGE_SAMPLE_COUNT;
+    long deferredSamples = sensorData.ring.deferredSampleCount;
+    assertTrue(endSampleIndex <= SIMULATED_MS * SAMPLE_RATE / 1000);
+    assertEquals(endSampleIndex, sentSamples + rangeSamples + deferredSamples);
+    assertEquals(stats.get(StreamStats.LOST_SAMPLES) + sensorData.droppedSamples, rangeSamples + deferredSamples);
+    assertTrue("packets were lost", sensor.lostFrames() > 0);
+    assertTrue("packets were duplicated", stats.get(StreamStats.DUPLICATE_PACKETS) > 0);
+    assertTrue("packets were malformed", stats.get(StreamStats.MALFORMED_PACKETS) > 0);
+    assertTrue("consumer stalls dropped samples", sensorData.droppedSamples > 0);
+  }
+}
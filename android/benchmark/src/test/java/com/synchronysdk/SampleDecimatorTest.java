@@ -0,0 +1,54 @@
+package com.synchronysdk;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SampleDecimatorTest {
+  //samples 0..99 and 130..199 of a 250 Hz stream, 100..129 lost
+  private static SensorData streamWithGap(){
+    SensorData sensorData = new SensorData();
+    sensorData.dataType = com.sensor.SensorProfile.NotifDataType.NTF_EEG;
+    sensorData.sampleRate = 250;
+    sensorData.channelCount = 1;
+    sensorData.channelMask = 1;
+    SensorData.SampleRing ring = new SensorData.SampleRing(1, 256);
+    int position = 0;
+    for (int sampleIndex = 0;sampleIndex < 200;++sampleIndex){
+      if (sampleIndex == 100){
+        ring.addGap(position, 100, 30);
+      }
+      if (sampleIndex >= 100 && sampleIndex < 130){
+        continue;
+      }
+      ring.sampleIndices[position++] = sampleIndex;
+    }
+    ring.writePosition = position;
+    sensorData.ring = ring;
+    return sensorData;
+  }
+
+  private static void assertGap(SensorData.SampleRing output, int sampleIndex, int count, int step){
+    assertEquals(1, output.gapWritePosition - output.gapReadPosition);
+    assertEquals(sampleIndex, output.gapFirstIndices[0]);
+    assertEquals(count, output.gapSampleCounts[0]);
+    assertEquals(step, output.gapSampleStep);
+  }
+
+  @Test
+  public void averageCountsLostSamplesOfTheDecimatedStream(){
+    SensorData sensorData = streamWithGap();
+    SensorData.SampleRing output = new SampleDecimator(4, SampleDecimator.MODE_AVERAGE).decimate(sensorData, sensorData.ring, 1024);
+    //100, 104 .. 128 are missing from the multiples of 4
+    assertGap(output, 100, 8, 4);
+    assertEquals(50 - 8, output.pendingSampleCount());
+  }
+
+  @Test
+  public void minMaxCountsBucketsLostEntirely(){
+    SensorData sensorData = streamWithGap();
+    SensorData.SampleRing output = new SampleDecimator(4, SampleDecimator.MODE_MIN_MAX).decimate(sensorData, sensorData.ring, 1024);
+    //buckets 25 .. 31 are lost, bucket 32 still has 130 and 131
+    assertGap(output, 100, 7, 4);
+  }
+}
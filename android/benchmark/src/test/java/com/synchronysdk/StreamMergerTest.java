@@ -0,0 +1,67 @@
+package com.synchronysdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StreamMergerTest {
+  static final long ORIGIN_NANOS = 1_000_000_000L;
+  static final double FRAME_RATE = 250;
+
+  //one channel stream whose sample n has the value n and is at firstNanos + n * periodNanos
+  private static SensorData stream(int sampleRate, long firstNanos, int sampleCount){
+    SensorData sensorData = new SensorData();
+    sensorData.dataType = com.sensor.SensorProfile.NotifDataType.NTF_EEG;
+    sensorData.sampleRate = sampleRate;
+    sensorData.channelCount = 1;
+    sensorData.channelMask = 1;
+    sensorData.clock.estimate = new SampleClock.Estimate(0, firstNanos, 1e9 / sampleRate, 0);
+    SensorData.SampleRing ring = new SensorData.SampleRing(1, sampleCount);
+    for (int index = 0;index < sampleCount;++index){
+      ring.sampleIndices[index] = index;
+      ring.channelData[0][index] = index;
+    }
+    ring.writePosition = sampleCount;
+    sensorData.ring = ring;
+    return sensorData;
+  }
+
+  //frames at FRAME_RATE over one second of every input, each frame must hold the nearest sample without gaps
+  private static void assertNearestSamples(int[] sampleRates, long[] firstNanos){
+    StreamMerger merger = new StreamMerger(new String[]{"A", "B"},
+      new int[]{com.sensor.SensorProfile.NotifDataType.NTF_EEG, com.sensor.SensorProfile.NotifDataType.NTF_EEG}, FRAME_RATE, 0);
+    for (int input = 0;input < sampleRates.length;++input){
+      SensorData sensorData = stream(sampleRates[input], firstNanos[input], sampleRates[input]);
+      merger.inputs[input].offer(sensorData, sensorData.ring);
+    }
+
+    int frame = 0;
+    for (long nowNanos : new long[]{ORIGIN_NANOS, ORIGIN_NANOS + 500_000_000L}){
+      int frameCount = merger.collect(nowNanos);
+      for (int index = 0;index < frameCount;++index, ++frame){
+        double frameNanos = ORIGIN_NANOS + frame * 1e9 / FRAME_RATE;
+        for (int input = 0;input < sampleRates.length;++input){
+          double periodNanos = 1e9 / sampleRates[input];
+          long nearest = Math.round((frameNanos - firstNanos[input]) / periodNanos);
+          float value = merger.frameValues.getFloat((input * frameCount + index) * 4);
+          assertEquals("input " + input + " frame " + frame, nearest, value, 0);
+        }
+      }
+    }
+    assertTrue(frame > 100);
+    assertEquals(0, merger.inputs[0].gapFrames.get());
+    assertEquals(0, merger.inputs[1].gapFrames.get());
+  }
+
+  @Test
+  public void framesTakeNearestSampleOfEveryInput(){
+    assertNearestSamples(new int[]{300, 1000}, new long[]{ORIGIN_NANOS - 8_700_000L, ORIGIN_NANOS - 9_600_000L});
+  }
+
+  @Test
+  public void slowerInputHoldsItsNearestSample(){
+    //ACC at 50 Hz merged with EEG at the frame rate
+    assertNearestSamples(new int[]{50, 250}, new long[]{ORIGIN_NANOS - 8_700_000L, ORIGIN_NANOS - 1_300_000L});
+  }
+}
@@ -0,0 +1,61 @@
+package com.synchronysdk;
+
+//channels and sample fields sent to JS for one data type, sampleIndex is always sent
+//only used by the emission worker of the device, the JS thread replaces the whole subscription
+class DataSubscription {
+  static final int FIELD_DATA = 1;
+  static final int FIELD_IMPEDANCE = 1 << 1;
+  static final int FIELD_SATURATION = 1 << 2;
+  static final int FIELD_IS_LOST = 1 << 3;
+  static final int FIELD_FILTERED = 1 << 4;
+  static final int ALL_FIELDS = FIELD_DATA | FIELD_IMPEDANCE | FIELD_SATURATION | FIELD_IS_LOST | FIELD_FILTERED;
+  static final String[] FIELD_NAMES = {"data", "impedance", "saturation", "isLost", "filtered"};
+
+  //bit per channel index, -1 subscribes all channels
+  final long channelMask;
+  final int fields;
+  private SensorData.ChannelLayout layout;
+  private int[] selected;
+
+  DataSubscription(long channelMask, int fields){
+    this.channelMask = channelMask;
+    this.fields = fields;
+  }
+
+  static DataSubscription all(){
+    return new DataSubscription(-1L, ALL_FIELDS);
+  }
+
+  //returns 0 for unknown names
+  static int field(String name){
+    for (int index = 0;index < FIELD_NAMES.length;++index){
+      if (FIELD_NAMES[index].equals(name)){
+        return 1 << index;
+      }
+    }
+    return 0;
+  }
+
+  //indexes into layout.channels of subscribed channels, cached until the layout changes
+  public int[] select(SensorData.ChannelLayout layout){
+    if (layout == this.layout){
+      return selected;
+    }
+    int[] channels = layout.channels;
+    int count = 0;
+    int[] result = new int[channels.length];
+    for (int index = 0;index < channels.length;++index){
+      if ((channelMask & (1L << channels[index])) != 0){
+        result[count++] = index;
+      }
+    }
+    if (count < result.length){
+      int[] trimmed = new int[count];
+      System.arraycopy(result, 0, trimmed, 0, count);
+      result = trimmed;
+    }
+    this.layout = layout;
+    selected = result;
+    return result;
+  }
+}
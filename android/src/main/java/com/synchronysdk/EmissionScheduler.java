@@ -0,0 +1,82 @@
+package com.synchronysdk;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//round robin emission over devices, a task runs on one worker at a time and is requeued at tail while data is pending
+class EmissionScheduler {
+  static final int IDLE = 0;
+  static final int QUEUED = 1;
+  static final int RUNNING = 2;
+  static final int RUNNING_DIRTY = 3;
+
+  abstract static class Task implements Runnable {
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    private EmissionScheduler scheduler;
+
+    //send a bounded amount of data, returns true if more data is pending
+    abstract boolean emit();
+
+    @Override
+    public void run() {
+      state.set(RUNNING);
+      boolean hasMore = false;
+      try{
+        hasMore = emit();
+      }finally {
+        if (hasMore || !state.compareAndSet(RUNNING, IDLE)){
+          state.set(QUEUED);
+          scheduler.execute(this);
+        }
+      }
+    }
+  }
+
+  private final ExecutorService executor;
+
+  EmissionScheduler(String name, int threadCount){
+    AtomicInteger threadIndex = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + threadIndex.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  //safe to call from any thread, data pending at call time will be emitted
+  public void schedule(Task task){
+    task.scheduler = this;
+    while (true){
+      int state = task.state.get();
+      if (state == QUEUED || state == RUNNING_DIRTY){
+        return;
+      }
+      if (state == IDLE){
+        if (task.state.compareAndSet(IDLE, QUEUED)){
+          execute(task);
+          return;
+        }
+      }else if (task.state.compareAndSet(RUNNING, RUNNING_DIRTY)){
+        return;
+      }
+    }
+  }
+
+  private void execute(Task task){
+    try{
+      executor.execute(task);
+    }catch (RejectedExecutionException e){
+      //scheduler is shut down
+      task.state.set(IDLE);
+    }
+  }
+
+  public void shutdown(){
+    executor.shutdownNow();
+  }
+}
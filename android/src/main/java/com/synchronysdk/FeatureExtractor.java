@@ -0,0 +1,216 @@
+package com.synchronysdk;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+//band power of a sliding window per channel, runs on the device decoder thread and queues frames for the emission worker
+//the window is split into hann windowed segments of the largest power of 2 up to 2/3 of the window with 50% overlap,
+//band power is the welch averaged one sided power spectral density summed over the band, in data unit^2
+class FeatureExtractor {
+  static final int MAX_PENDING_FRAMES = 64;
+  static final int MIN_SEGMENT_SIZE = 16;
+
+  //band power of one window, immutable once queued
+  static class Frame {
+    //last sample of the window
+    final int sampleIndex;
+    //lost samples in the window, they are 0 in the signal
+    final int lostSamples;
+    final int[] channels;
+    //channel major, bandPower[index * bandCount + band] belongs to channels[index]
+    final float[] bandPower;
+
+    Frame(int sampleIndex, int lostSamples, int[] channels, float[] bandPower){
+      this.sampleIndex = sampleIndex;
+      this.lostSamples = lostSamples;
+      this.channels = channels;
+      this.bandPower = bandPower;
+    }
+  }
+
+  final int windowMs;
+  final int hopMs;
+  //low, high pairs in Hz, high is excluded
+  final double[] bands;
+  //samples are decoded but not sent to JS
+  final boolean suppressRaw;
+  final ArrayBlockingQueue<Frame> frames = new ArrayBlockingQueue<>(MAX_PENDING_FRAMES);
+
+  private int sampleRate;
+  private int channelCount = -1;
+  private int windowSize;
+  private int hopSize;
+  private int segmentSize;
+  private int segmentCount;
+  private float[][] window;
+  private boolean[] lostFlags;
+  private int lostCount;
+  //next window slot to write, it holds the oldest sample once the window is full
+  private int windowPosition;
+  private int filledCount;
+  private int samplesUntilHop;
+  private RealFft fft;
+  private double[] hann;
+  private double[] segment;
+  private double[] power;
+  private double[] psd;
+  private int[] bandFirstBin;
+  private int[] bandEndBin;
+  private double psdScale;
+  private double binWidth;
+
+  FeatureExtractor(int windowMs, int hopMs, double[] bands, boolean suppressRaw){
+    this.windowMs = windowMs;
+    this.hopMs = hopMs;
+    this.bands = bands;
+    this.suppressRaw = suppressRaw;
+  }
+
+  boolean isValid(){
+    if (windowMs <= 0 || hopMs <= 0 || bands.length == 0 || bands.length % 2 != 0){
+      return false;
+    }
+    for (int band = 0;band < bands.length;band += 2){
+      if (bands[band] < 0 || bands[band] >= bands[band + 1]){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int bandCount(){
+    return bands.length / 2;
+  }
+
+  //called with new ring slots before they are published
+  public void process(SensorData sensorData, SensorData.SampleRing ring, int[] channels, int position, int sampleCount){
+    if (!prepare(sensorData.sampleRate, ring.channelCount)){
+      return;
+    }
+    int slotMask = ring.slotMask;
+    for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+      int slot = (position + sampleIndex) & slotMask;
+      int windowSlot = windowPosition;
+      if (lostFlags[windowSlot]){
+        lostFlags[windowSlot] = false;
+        --lostCount;
+      }
+      for (int channelIndex : channels){
+        window[channelIndex][windowSlot] = ring.channelData[channelIndex][slot];
+      }
+      windowPosition = windowSlot + 1 == windowSize ? 0 : windowSlot + 1;
+      filledCount = Math.min(filledCount + 1, windowSize);
+      if (--samplesUntilHop <= 0 && filledCount == windowSize){
+        samplesUntilHop = hopSize;
+        Frame frame = computeFrame(ring.sampleIndices[slot], channels);
+        if (!frames.offer(frame)){
+          //emission worker is behind, keep the newest frames
+          frames.poll();
+          frames.offer(frame);
+        }
+      }
+    }
+  }
+
+  //lost samples are 0 in the window, a frame due inside the gap is computed at the next sample
+  public void skip(SensorData sensorData, SensorData.SampleRing ring, int[] channels, int sampleCount){
+    if (!prepare(sensorData.sampleRate, ring.channelCount)){
+      return;
+    }
+    //older samples leave the window, a long gap costs at most one window
+    int fillCount = Math.min(sampleCount, windowSize);
+    for (int sampleIndex = 0;sampleIndex < fillCount;++sampleIndex){
+      int windowSlot = windowPosition;
+      if (!lostFlags[windowSlot]){
+        lostFlags[windowSlot] = true;
+        ++lostCount;
+      }
+      for (int channelIndex : channels){
+        window[channelIndex][windowSlot] = 0;
+      }
+      windowPosition = windowSlot + 1 == windowSize ? 0 : windowSlot + 1;
+    }
+    filledCount = Math.min(filledCount + fillCount, windowSize);
+    samplesUntilHop = Math.max(0, samplesUntilHop - sampleCount);
+  }
+
+  private boolean prepare(int sampleRate, int channelCount){
+    if (sampleRate == this.sampleRate && channelCount == this.channelCount){
+      return fft != null;
+    }
+    this.sampleRate = sampleRate;
+    this.channelCount = channelCount;
+    fft = null;
+    windowSize = (int) ((long) sampleRate * windowMs / 1000);
+    if (windowSize < MIN_SEGMENT_SIZE * 2){
+      return false;
+    }
+    hopSize = Math.max(1, (int) ((long) sampleRate * hopMs / 1000));
+    //at least 2 segments
+    segmentSize = Integer.highestOneBit(windowSize * 2 / 3);
+    segmentCount = (windowSize - segmentSize) / (segmentSize / 2) + 1;
+    fft = new RealFft(segmentSize);
+    hann = new double[segmentSize];
+    double windowPower = 0;
+    for (int index = 0;index < segmentSize;++index){
+      hann[index] = 0.5 - 0.5 * Math.cos(2 * Math.PI * index / segmentSize);
+      windowPower += hann[index] * hann[index];
+    }
+    psdScale = 1.0 / (sampleRate * windowPower * segmentCount);
+    binWidth = (double) sampleRate / segmentSize;
+    segment = new double[segmentSize];
+    power = new double[segmentSize / 2 + 1];
+    psd = new double[segmentSize / 2 + 1];
+    bandFirstBin = new int[bandCount()];
+    bandEndBin = new int[bandCount()];
+    for (int band = 0;band < bandCount();++band){
+      bandFirstBin[band] = Math.min(psd.length, (int) Math.ceil(bands[band * 2] / binWidth));
+      bandEndBin[band] = Math.min(psd.length, Math.max(bandFirstBin[band], (int) Math.ceil(bands[band * 2 + 1] / binWidth)));
+    }
+    window = new float[channelCount][windowSize];
+    lostFlags = new boolean[windowSize];
+    lostCount = 0;
+    windowPosition = 0;
+    filledCount = 0;
+    samplesUntilHop = hopSize;
+    return true;
+  }
+
+  private Frame computeFrame(int sampleIndex, int[] channels){
+    int bandCount = bandCount();
+    float[] bandPower = new float[channels.length * bandCount];
+    //last segment ends at the newest sample
+    int start = windowPosition + windowSize - segmentSize - (segmentCount - 1) * (segmentSize / 2);
+    int step = segmentSize / 2;
+    for (int index = 0;index < channels.length;++index){
+      float[] values = window[channels[index]];
+      for (int bin = 0;bin < psd.length;++bin){
+        psd[bin] = 0;
+      }
+      for (int segmentIndex = 0;segmentIndex < segmentCount;++segmentIndex){
+        //remove the segment mean so DC offsets don't leak into low bands
+        int offset = start + segmentIndex * step;
+        double mean = 0;
+        for (int sample = 0;sample < segmentSize;++sample){
+          mean += values[(offset + sample) % windowSize];
+        }
+        mean /= segmentSize;
+        for (int sample = 0;sample < segmentSize;++sample){
+          segment[sample] = (values[(offset + sample) % windowSize] - mean) * hann[sample];
+        }
+        fft.power(segment, power);
+        for (int bin = 0;bin < psd.length;++bin){
+          psd[bin] += power[bin];
+        }
+      }
+      for (int band = 0;band < bandCount;++band){
+        double sum = 0;
+        for (int bin = bandFirstBin[band];bin < bandEndBin[band];++bin){
+          //one sided, dc and nyquist bins are not doubled
+          sum += (bin == 0 || bin == psd.length - 1) ? psd[bin] : 2 * psd[bin];
+        }
+        bandPower[index * bandCount + band] = (float) (sum * psdScale * binWidth);
+      }
+    }
+    return new Frame(sampleIndex, lostCount, channels, bandPower);
+  }
+}
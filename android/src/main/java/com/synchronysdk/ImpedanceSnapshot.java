@@ -0,0 +1,31 @@
+package com.synchronysdk;
+
+//impedance and saturation of all channels from one impedance package, immutable once published
+//sample rings keep one reference per sample instead of copying the values into every channel
+class ImpedanceSnapshot {
+  static final ImpedanceSnapshot EMPTY = new ImpedanceSnapshot(0, new float[0], new float[0]);
+
+  //increases with every impedance package of a device
+  final int version;
+  final float[] impedance;
+  final float[] saturation;
+
+  ImpedanceSnapshot(int version, float[] impedance, float[] saturation){
+    this.version = version;
+    this.impedance = impedance;
+    this.saturation = saturation;
+  }
+
+  public int count(){
+    return Math.min(impedance.length, saturation.length);
+  }
+
+  //slots without a value read as 0
+  public float impedance(int slot){
+    return slot < impedance.length ? impedance[slot] : 0;
+  }
+
+  public float saturation(int slot){
+    return slot < saturation.length ? saturation[slot] : 0;
+  }
+}
@@ -0,0 +1,108 @@
+package com.synchronysdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//fixed size log bucket histogram of nanosecond values, like HdrHistogram with 2^SUB_BUCKET_BITS buckets per power of 2
+//values below SUB_BUCKET_COUNT are exact, larger values are within 1 / SUB_BUCKET_COUNT, values above 2^MAX_EXPONENT are clamped
+//record has a single writer thread and doesn't allocate, readers see values recorded since their last reset
+class LatencyHistogram {
+  static final int SUB_BUCKET_BITS = 5;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  //2^36 ns is about 68 s
+  static final int MAX_EXPONENT = 36;
+  //last bucket holds clamped values
+  static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + 1;
+
+  //percentiles of one interval, values in ns, 0 when count is 0
+  static class Percentiles {
+    final long count;
+    final long p50;
+    final long p99;
+    final long p999;
+    final long max;
+    final long intervalNanos;
+
+    Percentiles(long count, long p50, long p99, long p999, long max, long intervalNanos){
+      this.count = count;
+      this.p50 = p50;
+      this.p99 = p99;
+      this.p999 = p999;
+      this.max = max;
+      this.intervalNanos = intervalNanos;
+    }
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  //reader side, counts at the last reset
+  private final long[] baseline = new long[BUCKET_COUNT];
+  private final long[] interval = new long[BUCKET_COUNT];
+  private long resetNanos = System.nanoTime();
+
+  //only called by the writer thread
+  public void record(long nanos){
+    int index = bucketIndex(nanos);
+    counts.lazySet(index, counts.get(index) + 1);
+  }
+
+  //values recorded since the last reset, reset starts a new interval
+  public synchronized Percentiles percentiles(boolean reset){
+    long now = System.nanoTime();
+    long count = 0;
+    int maxIndex = -1;
+    for (int index = 0;index < BUCKET_COUNT;++index){
+      long current = counts.get(index);
+      interval[index] = current - baseline[index];
+      if (interval[index] > 0){
+        count += interval[index];
+        maxIndex = index;
+      }
+      if (reset){
+        baseline[index] = current;
+      }
+    }
+    long intervalNanos = now - resetNanos;
+    if (reset){
+      resetNanos = now;
+    }
+    if (count == 0){
+      return new Percentiles(0, 0, 0, 0, 0, intervalNanos);
+    }
+    return new Percentiles(count, valueAt(count, 0.5), valueAt(count, 0.99), valueAt(count, 0.999),
+      highestValue(maxIndex), intervalNanos);
+  }
+
+  //highest value of the bucket holding the sample at quantile
+  private long valueAt(long count, double quantile){
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int index = 0;index < BUCKET_COUNT;++index){
+      seen += interval[index];
+      if (seen >= rank){
+        return highestValue(index);
+      }
+    }
+    return highestValue(BUCKET_COUNT - 1);
+  }
+
+  static int bucketIndex(long value){
+    if (value < SUB_BUCKET_COUNT){
+      return (int) Math.max(0, value);
+    }
+    if (value >= (1L << MAX_EXPONENT)){
+      return BUCKET_COUNT - 1;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValue(int index){
+    if (index < SUB_BUCKET_COUNT){
+      return index;
+    }
+    int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    int subBucket = index % SUB_BUCKET_COUNT;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+  }
+}
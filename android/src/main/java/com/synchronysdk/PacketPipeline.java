@@ -0,0 +1,185 @@
+package com.synchronysdk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//single producer (BLE callback) / single consumer (decoder thread) packet ring
+class PacketPipeline {
+  static final int DEFAULT_CAPACITY = 256;
+  static final int DEFAULT_PACKET_SIZE = 256;
+  static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  //a handler call takes microseconds, this only guards against a stuck handler
+  static final long JOIN_TIMEOUT_MS = 1000;
+
+  interface PacketHandler {
+    void onPacket(byte[] data, int length);
+  }
+
+  private final String name;
+  private final PacketHandler handler;
+  private final byte[][] slots;
+  private final int[] lengths;
+  private final long[] arrivalNanos;
+  private final int slotMask;
+
+  private final AtomicLong readPosition = new AtomicLong();
+  private final AtomicLong writePosition = new AtomicLong();
+  private final AtomicLong receivedPackets = new AtomicLong();
+  private final AtomicLong droppedPackets = new AtomicLong();
+  private volatile long discardPosition;
+  private volatile int maxDepth;
+  private volatile boolean parked;
+  private volatile Thread worker;
+  private Thread lastWorker;
+  //arrival of the packet being handled, decoder thread only
+  private long handledArrivalNanos;
+
+  PacketPipeline(String name, int capacity, PacketHandler handler){
+    int slotCount = 1;
+    while (slotCount < capacity){
+      slotCount <<= 1;
+    }
+    this.name = name;
+    this.handler = handler;
+    this.slots = new byte[slotCount][DEFAULT_PACKET_SIZE];
+    this.lengths = new int[slotCount];
+    this.arrivalNanos = new long[slotCount];
+    this.slotMask = slotCount - 1;
+  }
+
+  //called on producer thread only, copies data so the caller may reuse it
+  public boolean offer(byte[] data){
+    receivedPackets.lazySet(receivedPackets.get() + 1);
+    long position = writePosition.get();
+    int depth = (int) (position - readPosition.get());
+    if (depth >= slots.length){
+      droppedPackets.lazySet(droppedPackets.get() + 1);
+      return false;
+    }
+    if (depth >= maxDepth){
+      maxDepth = depth + 1;
+    }
+    int slot = (int) position & slotMask;
+    byte[] buffer = slots[slot];
+    if (buffer.length < data.length){
+      buffer = new byte[data.length];
+      slots[slot] = buffer;
+    }
+    System.arraycopy(data, 0, buffer, 0, data.length);
+    lengths[slot] = data.length;
+    arrivalNanos[slot] = System.nanoTime();
+    writePosition.set(position + 1);
+
+    if (parked){
+      Thread thread = worker;
+      if (thread != null){
+        LockSupport.unpark(thread);
+      }
+    }
+    return true;
+  }
+
+  public synchronized void start(){
+    if (worker != null){
+      return;
+    }
+    final Thread previous = lastWorker;
+    Thread thread = new Thread(() -> {
+      if (previous != null){
+        try{
+          previous.join();
+        }catch (InterruptedException e){
+          return;
+        }
+      }
+      runLoop();
+    }, "SynchronySDK-decoder-" + name);
+    thread.setDaemon(true);
+    worker = thread;
+    lastWorker = thread;
+    thread.start();
+  }
+
+  public synchronized void stop(){
+    Thread thread = worker;
+    worker = null;
+    if (thread != null){
+      LockSupport.unpark(thread);
+    }
+  }
+
+  //stop and wait until the decoder thread returned from the handler, the caller may then change state the handler uses
+  public void stopAndJoin(){
+    Thread thread;
+    synchronized (this){
+      stop();
+      thread = lastWorker;
+    }
+    if (thread == null || thread == Thread.currentThread()){
+      return;
+    }
+    try{
+      thread.join(JOIN_TIMEOUT_MS);
+    }catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void runLoop(){
+    Thread self = Thread.currentThread();
+    while (worker == self){
+      long position = readPosition.get();
+      if (position == writePosition.get()){
+        parked = true;
+        if (position == writePosition.get() && worker == self){
+          LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        parked = false;
+        continue;
+      }
+      if (position >= discardPosition){
+        int slot = (int) position & slotMask;
+        handledArrivalNanos = arrivalNanos[slot];
+        //handler must not throw, an exception ends the decoder thread
+        handler.onPacket(slots[slot], lengths[slot]);
+      }
+      readPosition.set(position + 1);
+    }
+  }
+
+  //packets queued before this call are skipped by the decoder thread
+  public void discardPending(){
+    discardPosition = writePosition.get();
+  }
+
+  //called on producer thread, offer would drop the packet
+  public boolean isFull(){
+    return writePosition.get() - readPosition.get() >= slots.length;
+  }
+
+  //System.nanoTime() when the packet passed to the handler was offered, only valid in the handler
+  public long handledArrivalNanos(){
+    return handledArrivalNanos;
+  }
+
+  public int depth(){
+    return (int) (writePosition.get() - readPosition.get());
+  }
+
+  public int maxDepth(){
+    return maxDepth;
+  }
+
+  public int capacity(){
+    return slots.length;
+  }
+
+  public long receivedPackets(){
+    return receivedPackets.get();
+  }
+
+  public long droppedPackets(){
+    return droppedPackets.get();
+  }
+}
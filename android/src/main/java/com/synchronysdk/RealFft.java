@@ -0,0 +1,91 @@
+package com.synchronysdk;
+
+//power spectrum of n real samples, n is a power of 2
+//packs even / odd samples into one complex fft of n / 2 points and splits the result, all tables are precomputed
+class RealFft {
+  final int size;
+  private final int half;
+  private final int[] bitReverse;
+  //twiddles of the n / 2 point fft
+  private final double[] cos;
+  private final double[] sin;
+  //twiddles of the split step
+  private final double[] splitCos;
+  private final double[] splitSin;
+  private final double[] re;
+  private final double[] im;
+
+  RealFft(int size){
+    if (size < 4 || Integer.bitCount(size) != 1){
+      throw new IllegalArgumentException("fft size must be a power of 2: " + size);
+    }
+    this.size = size;
+    half = size / 2;
+    bitReverse = new int[half];
+    int bits = Integer.numberOfTrailingZeros(half);
+    for (int index = 0;index < half;++index){
+      bitReverse[index] = bits == 0 ? 0 : Integer.reverse(index) >>> (32 - bits);
+    }
+    cos = new double[half / 2 + 1];
+    sin = new double[half / 2 + 1];
+    for (int index = 0;index < cos.length;++index){
+      cos[index] = Math.cos(2 * Math.PI * index / half);
+      sin[index] = Math.sin(2 * Math.PI * index / half);
+    }
+    splitCos = new double[half + 1];
+    splitSin = new double[half + 1];
+    for (int index = 0;index <= half;++index){
+      splitCos[index] = Math.cos(2 * Math.PI * index / size);
+      splitSin[index] = Math.sin(2 * Math.PI * index / size);
+    }
+    re = new double[half];
+    im = new double[half];
+  }
+
+  //power[k] = |X[k]|^2 for k = 0..size / 2, power needs size / 2 + 1 entries
+  public void power(double[] in, double[] power){
+    for (int index = 0;index < half;++index){
+      int target = bitReverse[index];
+      re[target] = in[2 * index];
+      im[target] = in[2 * index + 1];
+    }
+    //iterative radix 2, forward transform
+    for (int length = 2;length <= half;length <<= 1){
+      int step = half / length;
+      int span = length >>> 1;
+      for (int start = 0;start < half;start += length){
+        for (int index = 0, twiddle = 0;index < span;++index, twiddle += step){
+          double wr = cos[twiddle];
+          double wi = -sin[twiddle];
+          int a = start + index;
+          int b = a + span;
+          double tr = wr * re[b] - wi * im[b];
+          double ti = wr * im[b] + wi * re[b];
+          re[b] = re[a] - tr;
+          im[b] = im[a] - ti;
+          re[a] += tr;
+          im[a] += ti;
+        }
+      }
+    }
+    //X[k] = E[k] + e^(-2 pi i k / n) O[k], E and O are the spectra of even and odd samples
+    for (int k = 0;k <= half;++k){
+      int index = k == half ? 0 : k;
+      int mirror = k == 0 ? 0 : half - k;
+      double zr = re[index];
+      double zi = im[index];
+      double cr = re[mirror];
+      double ci = -im[mirror];
+      double er = (zr + cr) / 2;
+      double ei = (zi + ci) / 2;
+      //O = (Z - conj(Z[n/2 - k])) / 2i
+      double or = (zi - ci) / 2;
+      double oi = -(zr - cr) / 2;
+      double wr = splitCos[k];
+      double wi = -splitSin[k];
+      double xr = er + wr * or - wi * oi;
+      double xi = ei + wr * oi + wi * or;
+      power[k] = xr * xr + xi * xi;
+    }
+  }
+}
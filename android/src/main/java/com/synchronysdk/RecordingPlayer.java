@@ -0,0 +1,241 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+//replays a SampleRecorder file as notification frames, paced by sampleIndex / sampleRate
+//refused frames are offered again, so a replay never loses frames
+class RecordingPlayer implements SensorSource {
+  static final long FULL_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+  static final int ACC_GYRO_FRAME_SIZE = 15;
+
+  private final String filePath;
+  private final String deviceMac;
+  private final double speed;
+  private final ByteBuffer mapped;
+  private final int dataPosition;
+  private volatile Thread worker;
+
+  //speed 1 is real time, speed <= 0 replays as fast as the decoder accepts frames
+  RecordingPlayer(String filePath, double speed) throws IOException {
+    this.filePath = filePath;
+    this.speed = speed;
+    RandomAccessFile file = new RandomAccessFile(filePath, "r");
+    try{
+      FileChannel channel = file.getChannel();
+      if (channel.size() > Integer.MAX_VALUE){
+        throw new IOException("recording is too large: " + filePath);
+      }
+      //mapping stays valid after the channel is closed
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }finally {
+      file.close();
+    }
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+    try{
+      if (mapped.getInt() != SampleRecorder.MAGIC){
+        throw new IOException("not a recording: " + filePath);
+      }
+      short version = mapped.getShort();
+      if (version > SampleRecorder.VERSION){
+        throw new IOException("unsupported recording version: " + version);
+      }
+      mapped.getShort();
+      mapped.getLong();
+      byte[] mac = new byte[mapped.getShort()];
+      mapped.get(mac);
+      deviceMac = new String(mac, Charset.forName("UTF-8"));
+    }catch (BufferUnderflowException e){
+      throw new IOException("truncated recording: " + filePath);
+    }
+    dataPosition = mapped.position();
+  }
+
+  @Override
+  public String deviceMac(){
+    return deviceMac;
+  }
+
+  public String filePath(){
+    return filePath;
+  }
+
+  @Override
+  public boolean isRunning(){
+    return worker != null;
+  }
+
+  //replays from the beginning of the file, a running replay is stopped first
+  @Override
+  public synchronized void start(Listener listener){
+    stop();
+    Thread thread = new Thread(() -> run(listener), "SynchronySDK-playback-" + deviceMac);
+    thread.setDaemon(true);
+    worker = thread;
+    thread.start();
+  }
+
+  @Override
+  public synchronized void stop(){
+    Thread thread = worker;
+    worker = null;
+    if (thread != null){
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void run(Listener listener){
+    Thread self = Thread.currentThread();
+    String errorMsg = null;
+    try{
+      replay(listener, self);
+    }catch (BufferUnderflowException e){
+      //recording was not closed, replay what was written
+    }catch (RuntimeException e){
+      errorMsg = "playback failed: " + e.getLocalizedMessage();
+    }
+    boolean finished = false;
+    synchronized (this){
+      if (worker == self){
+        worker = null;
+        finished = true;
+      }
+    }
+    if (finished || errorMsg != null){
+      listener.onFinished(errorMsg);
+    }
+  }
+
+  private void replay(Listener listener, Thread self){
+    ByteBuffer buffer = mapped.duplicate();
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(dataPosition);
+
+    SensorData[] streams = new SensorData[SampleDecoder.DATA_TYPE_COUNT];
+    int[] sampleBytes = new int[SampleDecoder.DATA_TYPE_COUNT];
+    byte[][] frames = new byte[SampleDecoder.DATA_TYPE_COUNT][];
+    byte[] accGyroFrame = null;
+    int accSampleIndex = -1;
+    long startTime = System.nanoTime();
+
+    while (worker == self && buffer.hasRemaining()){
+      byte blockType = buffer.get();
+      if (blockType == SampleRecorder.BLOCK_STREAM){
+        SensorData sensorData = new SensorData();
+        sensorData.dataType = buffer.get();
+        sensorData.sampleRate = buffer.getInt();
+        sensorData.channelMask = buffer.getLong();
+        sensorData.channelCount = buffer.getShort();
+        sensorData.resolutionBits = buffer.get();
+        sensorData.packageSampleCount = buffer.getShort();
+        sensorData.K = buffer.getDouble();
+        sensorData.clear();
+        int typeIndex = SampleDecoder.dataTypeIndex(sensorData.dataType);
+        if (typeIndex < 0 || sensorData.sampleRate <= 0 || sensorData.packageSampleCount <= 0){
+          throw new IllegalStateException("invalid stream block");
+        }
+        sampleBytes[typeIndex] = sensorData.channelLayout().channels.length * (sensorData.resolutionBits / 8);
+        frames[typeIndex] = new byte[3 + sensorData.packageSampleCount * sampleBytes[typeIndex]];
+        streams[typeIndex] = sensorData;
+        listener.onStream(sensorData);
+      }else if (blockType == SampleRecorder.BLOCK_SAMPLES){
+        int dataType = buffer.get();
+        int firstSampleIndex = buffer.getInt();
+        int sampleCount = buffer.getInt();
+        boolean lost = (buffer.get() & SampleRecorder.FLAG_LOST) != 0;
+        int typeIndex = SampleDecoder.dataTypeIndex(dataType);
+        SensorData sensorData = typeIndex >= 0 ? streams[typeIndex] : null;
+        if (sensorData == null){
+          throw new IllegalStateException("samples without stream block");
+        }
+        if (lost){
+          //decoder restores lost samples from the package index gap
+          continue;
+        }
+        int payloadSize = sampleCount * sampleBytes[typeIndex];
+        int packageIndex = (firstSampleIndex / sensorData.packageSampleCount + 1) & 0xffff;
+        waitUntil(startTime, (double) firstSampleIndex / sensorData.sampleRate, self);
+
+        if (dataType == SensorProfile.NotifDataType.NTF_GYO_DATA){
+          //gyro is sent in the same frame as acc, behind it
+          if (accGyroFrame != null && accSampleIndex == firstSampleIndex){
+            buffer.get(accGyroFrame, 9, Math.min(payloadSize, ACC_GYRO_FRAME_SIZE - 9));
+            offer(listener, accGyroFrame, self);
+            accGyroFrame = null;
+          }else{
+            buffer.position(buffer.position() + payloadSize);
+          }
+          continue;
+        }
+        if (accGyroFrame != null){
+          offer(listener, accGyroFrame, self);
+          accGyroFrame = null;
+        }
+        if (dataType == SensorProfile.NotifDataType.NTF_ACC_DATA){
+          accGyroFrame = new byte[ACC_GYRO_FRAME_SIZE];
+          accGyroFrame[0] = SensorProfile.NotifDataType.NTF_ACC_DATA;
+          accGyroFrame[1] = (byte) packageIndex;
+          accGyroFrame[2] = (byte) (packageIndex >> 8);
+          buffer.get(accGyroFrame, 3, Math.min(payloadSize, ACC_GYRO_FRAME_SIZE - 3));
+          accSampleIndex = firstSampleIndex;
+          continue;
+        }
+        byte[] frame = frames[typeIndex];
+        if (frame.length != 3 + payloadSize){
+          frame = new byte[3 + payloadSize];
+        }
+        frame[0] = (byte) dataType;
+        frame[1] = (byte) packageIndex;
+        frame[2] = (byte) (packageIndex >> 8);
+        buffer.get(frame, 3, payloadSize);
+        offer(listener, frame, self);
+      }else if (blockType == SampleRecorder.BLOCK_IMPEDANCE){
+        int count = buffer.getShort();
+        byte[] frame = new byte[3 + count * 8];
+        frame[0] = SensorProfile.NotifDataType.NTF_IMPEDANCE;
+        buffer.get(frame, 3, count * 4);
+        for (int index = 0;index < count;++index){
+          //firmware sends saturation in range 0-1000
+          int bits = Float.floatToIntBits(buffer.getFloat() * 10);
+          int offset = 3 + (count + index) * 4;
+          frame[offset] = (byte) bits;
+          frame[offset + 1] = (byte) (bits >> 8);
+          frame[offset + 2] = (byte) (bits >> 16);
+          frame[offset + 3] = (byte) (bits >> 24);
+        }
+        offer(listener, frame, self);
+      }else{
+        throw new IllegalStateException("unknown block type: " + blockType);
+      }
+    }
+    if (accGyroFrame != null){
+      offer(listener, accGyroFrame, self);
+    }
+  }
+
+  private void waitUntil(long startTime, double seconds, Thread self){
+    if (speed <= 0){
+      return;
+    }
+    long dueTime = startTime + (long) (seconds * 1e9 / speed);
+    long delay;
+    while (worker == self && (delay = dueTime - System.nanoTime()) > 0){
+      LockSupport.parkNanos(this, delay);
+    }
+  }
+
+  private void offer(Listener listener, byte[] frame, Thread self){
+    while (!listener.onFrame(frame) && worker == self){
+      LockSupport.parkNanos(this, FULL_RETRY_NANOS);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.synchronysdk;
+
+//maps sample indices of one stream to System.nanoTime(), fitted online to package arrival times, runs on the decoder thread
+//arrival is measurement time + transport latency, the latency is positive and jittery, so the line follows the lower envelope:
+//the slope is an exponentially weighted least squares fit over about WINDOW_SECONDS, the offset is the smallest residual,
+//which rises slowly so a single early package doesn't hold it forever
+//timestamps keep the smallest latency seen, they are comparable between devices but not exact measurement times
+class SampleClock {
+  static final double WINDOW_SECONDS = 300;
+  //packages before the fitted slope is used, the nominal period is used until then
+  static final int MIN_PACKAGES = 32;
+  //crystals are within a few 100 ppm, a larger deviation is a bad fit, e.g. after the decoder stalled
+  static final double MAX_DRIFT = 0.005;
+  static final double ENVELOPE_RISE_NANOS_PER_SECOND = 1e6;
+  static final long PUBLISH_INTERVAL_NANOS = 100_000_000L;
+
+  //immutable, replaced as a whole at most every PUBLISH_INTERVAL_NANOS
+  static class Estimate {
+    final int sampleIndex;
+    //System.nanoTime() of sampleIndex
+    final long timestampNanos;
+    final double periodNanos;
+    //sensor clock rate against System.nanoTime(), positive when the sensor runs fast
+    final double driftPpm;
+
+    Estimate(int sampleIndex, long timestampNanos, double periodNanos, double driftPpm){
+      this.sampleIndex = sampleIndex;
+      this.timestampNanos = timestampNanos;
+      this.periodNanos = periodNanos;
+      this.driftPpm = driftPpm;
+    }
+
+    public long timestampNanos(int sampleIndex){
+      return timestampNanos + Math.round((sampleIndex - this.sampleIndex) * periodNanos);
+    }
+  }
+
+  //read by any thread, null until the first package
+  volatile Estimate estimate;
+
+  private long packageCount;
+  //fit is relative to the first package so doubles keep ns precision
+  private int firstSampleIndex;
+  private long firstArrivalNanos;
+  private double meanX;
+  private double meanY;
+  private double varianceX;
+  private double covarianceXY;
+  private double minResidual;
+  private long publishedArrivalNanos;
+
+  public void clear(){
+    packageCount = 0;
+    estimate = null;
+  }
+
+  //lastSampleIndex is the last sample of the package, it was measured just before the package was sent
+  public void update(int lastSampleIndex, long arrivalNanos, int sampleRate, int packageSampleCount){
+    if (sampleRate <= 0){
+      return;
+    }
+    double nominalPeriod = 1e9 / sampleRate;
+    if (packageCount == 0){
+      firstSampleIndex = lastSampleIndex;
+      firstArrivalNanos = arrivalNanos;
+      meanX = 0;
+      meanY = 0;
+      varianceX = 0;
+      covarianceXY = 0;
+      minResidual = 0;
+    }
+    ++packageCount;
+    double x = lastSampleIndex - firstSampleIndex;
+    double y = arrivalNanos - firstArrivalNanos;
+    double packageSeconds = (double) packageSampleCount / sampleRate;
+    double weight = Math.max(1.0 / packageCount, packageSeconds / WINDOW_SECONDS);
+    double dx = x - meanX;
+    double dy = y - meanY;
+    meanX += weight * dx;
+    meanY += weight * dy;
+    varianceX = (1 - weight) * (varianceX + weight * dx * dx);
+    covarianceXY = (1 - weight) * (covarianceXY + weight * dx * dy);
+
+    double period = nominalPeriod;
+    if (packageCount >= MIN_PACKAGES && varianceX > 0){
+      period = Math.max(nominalPeriod * (1 - MAX_DRIFT), Math.min(nominalPeriod * (1 + MAX_DRIFT), covarianceXY / varianceX));
+    }
+    double residual = y - (meanY + period * (x - meanX));
+    minResidual = packageCount == 1 ? residual : Math.min(minResidual + ENVELOPE_RISE_NANOS_PER_SECOND * packageSeconds, residual);
+
+    if (estimate == null || arrivalNanos - publishedArrivalNanos >= PUBLISH_INTERVAL_NANOS){
+      publishedArrivalNanos = arrivalNanos;
+      long timestampNanos = firstArrivalNanos + Math.round(meanY + period * (x - meanX) + minResidual);
+      estimate = new Estimate(lastSampleIndex, timestampNanos, period, (nominalPeriod / period - 1) * 1e6);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package com.synchronysdk;
+
+//reduces the sample rate of a stream sent to JS, e.g. for charts, runs on the emission worker of the device
+//ring, history and recording keep the full rate
+//MODE_AVERAGE low pass filters and keeps samples whose sampleIndex is a multiple of factor
+//MODE_MIN_MAX sends the min and max of every factor samples in the order they occurred, 2 samples per bucket
+//lost ranges restart the filter and close the bucket, they are sent as the samples missing in the decimated stream:
+//every factor-th sample index in average mode, one sample per bucket lost entirely in min max mode, factor apart
+class SampleDecimator {
+  static final int MODE_AVERAGE = 0;
+  static final int MODE_MIN_MAX = 1;
+  //anti aliasing cutoff relative to the nyquist frequency of the decimated stream
+  static final double CUTOFF_RATIO = 0.8;
+  //data and filtered columns
+  static final int COLUMN_COUNT = 2;
+
+  final int factor;
+  final int mode;
+
+  private int sampleRate;
+  private int channelCount = -1;
+  private SensorData.SampleRing output;
+  //anti aliasing filters per column, average mode
+  private final SignalFilter[] filters = new SignalFilter[COLUMN_COUNT];
+  //bucket being collected, min max mode
+  private boolean hasBucket;
+  private int bucket;
+  private int bucketFirstIndex;
+  private int bucketLastIndex;
+  private int bucketSize;
+  private ImpedanceSnapshot bucketFirstSnapshot;
+  private ImpedanceSnapshot bucketLastSnapshot;
+  private float[][] minValues;
+  private float[][] maxValues;
+  private int[][] minOffsets;
+  private int[][] maxOffsets;
+
+  SampleDecimator(int factor, int mode){
+    this.factor = factor;
+    this.mode = mode;
+  }
+
+  boolean isValid(){
+    return factor > 1 && (mode == MODE_AVERAGE || mode == MODE_MIN_MAX);
+  }
+
+  //consumes up to maxSampleCount pending samples of ring, returns the ring holding decimated samples to send
+  public SensorData.SampleRing decimate(SensorData sensorData, SensorData.SampleRing ring, int maxSampleCount){
+    int readPosition = ring.readPosition;
+    int sampleCount = Math.min(ring.writePosition - readPosition, maxSampleCount);
+    prepare(sensorData, ring, maxSampleCount);
+    int[] channels = sensorData.channelLayout().channels;
+    int gapPosition = ring.gapReadPosition;
+    int gapEnd = gapPosition + ring.pendingGapCount(readPosition + sampleCount);
+    for (int start = 0;;++gapPosition){
+      int end = sampleCount;
+      if (gapPosition != gapEnd){
+        end = ring.gapPositions[gapPosition & (SensorData.SampleRing.GAP_CAPACITY - 1)] - readPosition;
+      }
+      if (end > start){
+        if (mode == MODE_MIN_MAX){
+          minMax(ring, channels, readPosition + start, end - start);
+        }else{
+          average(ring, channels, readPosition + start, end - start);
+        }
+        start = end;
+      }
+      if (gapPosition == gapEnd){
+        break;
+      }
+      skip(ring, channels, gapPosition);
+    }
+    //release slots to decoder thread
+    ring.gapReadPosition = gapEnd;
+    ring.readPosition = readPosition + sampleCount;
+    return output;
+  }
+
+  //output gaps are drained with the samples around them, so the output queue never fills
+  private void skip(SensorData.SampleRing ring, int[] channels, int gapPosition){
+    int entry = gapPosition & (SensorData.SampleRing.GAP_CAPACITY - 1);
+    if (hasBucket){
+      flushBucket(channels);
+    }
+    for (SignalFilter filter : filters){
+      filter.reset();
+    }
+    int firstIndex = ring.gapFirstIndices[entry];
+    int endIndex = firstIndex + ring.gapSampleCounts[entry];
+    //a bucket lost in part still sends its other samples
+    int firstBucket = -Math.floorDiv(-firstIndex, factor);
+    int endBucket = mode == MODE_MIN_MAX ? Math.floorDiv(endIndex, factor) : -Math.floorDiv(-endIndex, factor);
+    if (endBucket > firstBucket){
+      output.addGap(output.writePosition, firstBucket * factor, endBucket - firstBucket);
+    }
+  }
+
+  //state is dropped when stream config changes
+  private void prepare(SensorData sensorData, SensorData.SampleRing ring, int maxSampleCount){
+    //every gap may close a bucket early
+    int minCapacity = 2 * (maxSampleCount / factor + 2 + SensorData.SampleRing.GAP_CAPACITY);
+    boolean hasFiltered = ring.channelFiltered != null;
+    if (output != null && sampleRate == sensorData.sampleRate && channelCount == ring.channelCount
+      && output.capacity >= minCapacity && (output.channelFiltered != null) == hasFiltered){
+      return;
+    }
+    sampleRate = sensorData.sampleRate;
+    channelCount = ring.channelCount;
+    output = new SensorData.SampleRing(channelCount, minCapacity);
+    output.gapSampleStep = factor;
+    if (hasFiltered){
+      output.channelFiltered = new float[channelCount][output.capacity];
+    }
+    for (int column = 0;column < COLUMN_COUNT;++column){
+      filters[column] = new SignalFilter(0, 0, CUTOFF_RATIO * sampleRate / factor / 2, true);
+    }
+    hasBucket = false;
+    minValues = new float[COLUMN_COUNT][channelCount];
+    maxValues = new float[COLUMN_COUNT][channelCount];
+    minOffsets = new int[COLUMN_COUNT][channelCount];
+    maxOffsets = new int[COLUMN_COUNT][channelCount];
+  }
+
+  //filters in place, slots between readPosition and writePosition belong to the sender
+  private void average(SensorData.SampleRing ring, int[] channels, int position, int sampleCount){
+    int slotMask = ring.slotMask;
+    float[][][] columns = {ring.channelData, ring.channelFiltered};
+    float[][][] outColumns = {output.channelData, output.channelFiltered};
+    for (int column = 0;column < COLUMN_COUNT;++column){
+      if (columns[column] == null){
+        continue;
+      }
+      SignalFilter filter = filters[column];
+      filter.prepare(sampleRate, channelCount);
+      for (int channelIndex : channels){
+        float[] values = columns[column][channelIndex];
+        filter.process(channelIndex, values, values, position, sampleCount, slotMask);
+      }
+    }
+    int outPosition = output.writePosition;
+    for (int index = 0;index < sampleCount;++index){
+      int slot = (position + index) & slotMask;
+      int sampleIndex = ring.sampleIndices[slot];
+      if (Math.floorMod(sampleIndex, factor) != 0){
+        continue;
+      }
+      int outSlot = outPosition++ & output.slotMask;
+      output.sampleIndices[outSlot] = sampleIndex;
+      output.setLost(outSlot, false);
+      output.impedanceSnapshots[outSlot] = ring.impedanceSnapshots[slot];
+      for (int column = 0;column < COLUMN_COUNT;++column){
+        if (columns[column] == null){
+          continue;
+        }
+        for (int channelIndex : channels){
+          outColumns[column][channelIndex][outSlot] = columns[column][channelIndex][slot];
+        }
+      }
+    }
+    output.writePosition = outPosition;
+  }
+
+  //a bucket is sent when the first sample of the next bucket arrives
+  private void minMax(SensorData.SampleRing ring, int[] channels, int position, int sampleCount){
+    int slotMask = ring.slotMask;
+    float[][][] columns = {ring.channelData, ring.channelFiltered};
+    for (int index = 0;index < sampleCount;++index){
+      int slot = (position + index) & slotMask;
+      int sampleIndex = ring.sampleIndices[slot];
+      int sampleBucket = Math.floorDiv(sampleIndex, factor);
+      if (hasBucket && sampleBucket != bucket){
+        flushBucket(channels);
+      }
+      if (!hasBucket){
+        hasBucket = true;
+        bucket = sampleBucket;
+        bucketFirstIndex = sampleIndex;
+        bucketFirstSnapshot = ring.impedanceSnapshots[slot];
+        bucketSize = 0;
+      }
+      bucketLastIndex = sampleIndex;
+      bucketLastSnapshot = ring.impedanceSnapshots[slot];
+      int offset = bucketSize++;
+      boolean first = offset == 0;
+      for (int column = 0;column < COLUMN_COUNT;++column){
+        if (columns[column] == null){
+          continue;
+        }
+        float[] min = minValues[column];
+        float[] max = maxValues[column];
+        for (int channelIndex : channels){
+          float value = columns[column][channelIndex][slot];
+          if (first || value < min[channelIndex]){
+            min[channelIndex] = value;
+            minOffsets[column][channelIndex] = offset;
+          }
+          if (first || value > max[channelIndex]){
+            max[channelIndex] = value;
+            maxOffsets[column][channelIndex] = offset;
+          }
+        }
+      }
+    }
+  }
+
+  private void flushBucket(int[] channels){
+    hasBucket = false;
+    float[][][] outColumns = {output.channelData, output.channelFiltered};
+    int outPosition = output.writePosition;
+    for (int point = 0;point < 2;++point){
+      int outSlot = outPosition++ & output.slotMask;
+      output.sampleIndices[outSlot] = point == 0 ? bucketFirstIndex : bucketLastIndex;
+      output.impedanceSnapshots[outSlot] = point == 0 ? bucketFirstSnapshot : bucketLastSnapshot;
+      output.setLost(outSlot, false);
+      for (int column = 0;column < COLUMN_COUNT;++column){
+        if (outColumns[column] == null){
+          continue;
+        }
+        for (int channelIndex : channels){
+          boolean minFirst = minOffsets[column][channelIndex] <= maxOffsets[column][channelIndex];
+          outColumns[column][channelIndex][outSlot] =
+            (point == 0) == minFirst ? minValues[column][channelIndex] : maxValues[column][channelIndex];
+        }
+      }
+    }
+    output.writePosition = outPosition;
+  }
+}
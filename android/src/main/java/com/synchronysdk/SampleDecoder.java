@@ -0,0 +1,370 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+//decodes notification packets of one device into SensorData rings, runs on the device decoder thread
+//it has no android dependency so it can be benchmarked on the JVM
+class SampleDecoder {
+  static final int DATA_TYPE_EEG = 0;
+  static final int DATA_TYPE_ECG = 1;
+  static final int DATA_TYPE_ACC = 2;
+  static final int DATA_TYPE_GYRO = 3;
+  static final int DATA_TYPE_COUNT = 4;
+
+  interface Listener {
+    void onSamplesRead(SensorData sensorData);
+  }
+
+  SensorData sensorData[];
+  //replaced as a whole by every impedance package
+  volatile ImpedanceSnapshot impedance = ImpedanceSnapshot.EMPTY;
+  //per data type index, 0 disables history
+  final int[] historyDurationMs = new int[DATA_TYPE_COUNT];
+  //per data type index, null disables filtering
+  final SignalFilter[] filters = new SignalFilter[DATA_TYPE_COUNT];
+  //per data type index, null disables band power
+  final FeatureExtractor[] featureExtractors = new FeatureExtractor[DATA_TYPE_COUNT];
+  //batch policy, samples are sent every batchLatencyMs or when batchMaxSamples are pending
+  volatile int batchLatencyMs;
+  volatile int batchMaxSamples;
+  volatile SampleRecorder recorder;
+  Listener listener;
+  //per data type index
+  final StreamStats[] stats = new StreamStats[DATA_TYPE_COUNT];
+  //System.nanoTime() when the packet being processed was received, set before processPacket
+  long packetArrivalNanos;
+
+  SampleDecoder(){
+    sensorData = new SensorData[DATA_TYPE_COUNT];
+    for (int index = 0;index < DATA_TYPE_COUNT;++index){
+      stats[index] = new StreamStats();
+    }
+  }
+
+  public void clear(){
+    for (int index = 0;index < DATA_TYPE_COUNT;++index){
+      if (sensorData[index] != null){
+        sensorData[index].clear();
+      }
+    }
+    impedance = ImpedanceSnapshot.EMPTY;
+  }
+
+  //data may be longer than length
+  public void processPacket(byte[] data, int length){
+    if (data[0] == SensorProfile.NotifDataType.NTF_IMPEDANCE){
+      int offset = 1;
+      int packageIndex = ((data[offset + 1] & 0xff) << 8 | (data[offset] & 0xff));
+      offset += 2;
+//      Log.d(TAG, "impedance package index: " + packageIndex);
+      int dataCount = (length - 3) / 4 / 2;
+      float[] _impedanceData = new float[dataCount];
+      float[] _saturationData = new float[dataCount];
+      for (int index = 0;index < dataCount;++index){
+        _impedanceData[index] = getFloat(data, offset);
+        offset += 4;
+      }
+      for (int index = 0;index < dataCount;++index){
+        _saturationData[index] = getFloat(data, offset) / 10; //firmware value range 0-1000
+        offset += 4;
+      }
+      //samples already decoded keep referencing the previous snapshot
+      ImpedanceSnapshot snapshot = new ImpedanceSnapshot(impedance.version + 1, _impedanceData, _saturationData);
+      impedance = snapshot;
+      SampleRecorder recorder = this.recorder;
+      if (recorder != null){
+        recorder.writeImpedance(snapshot);
+      }
+    }else if (data[0] == SensorProfile.NotifDataType.NTF_EEG ||
+      data[0] == SensorProfile.NotifDataType.NTF_ECG ){
+      int dataType = data[0] - SensorProfile.NotifDataType.NTF_EEG;
+      SensorData sensorData = this.sensorData[dataType];
+      if (sensorData != null && checkReadSamples(data, length, sensorData, 3))
+        notifySamplesRead(sensorData);
+    }else if (data[0] == SensorProfile.NotifDataType.NTF_ACC_DATA){
+      SensorData sensorDataACC = this.sensorData[DATA_TYPE_ACC];
+      if (checkReadSamples(data, length, sensorDataACC, 3))
+        notifySamplesRead(sensorDataACC);
+
+      SensorData sensorDataGYRO = this.sensorData[DATA_TYPE_GYRO];
+      if (checkReadSamples(data, length, sensorDataGYRO, 9))
+        notifySamplesRead(sensorDataGYRO);
+    }
+  }
+
+  private void notifySamplesRead(SensorData sensorData){
+    if (listener != null){
+      listener.onSamplesRead(sensorData);
+    }
+  }
+
+  static int dataTypeIndex(int dataType){
+    if (dataType == SensorProfile.NotifDataType.NTF_EEG){
+      return DATA_TYPE_EEG;
+    }else if (dataType == SensorProfile.NotifDataType.NTF_ECG){
+      return DATA_TYPE_ECG;
+    }else if (dataType == SensorProfile.NotifDataType.NTF_ACC_DATA){
+      return DATA_TYPE_ACC;
+    }else if (dataType == SensorProfile.NotifDataType.NTF_GYO_DATA){
+      return DATA_TYPE_GYRO;
+    }
+    return -1;
+  }
+
+  static float getFloat(byte[] b, int offset) {
+    int accum = 0;
+    accum = accum | (b[offset + 0] & 0xff) << 0;
+    accum = accum | (b[offset + 1] & 0xff) << 8;
+    accum = accum | (b[offset + 2] & 0xff) << 16;
+    accum = accum | (b[offset + 3] & 0xff) << 24;
+    return Float.intBitsToFloat(accum);
+  }
+  boolean checkReadSamples(byte[] data, int length, SensorData sensorData, int dataOffset){
+    int offset = 1;
+    StreamStats stats = this.stats[dataTypeIndex(sensorData.dataType)];
+    long startNanos = System.nanoTime();
+    stats.add(StreamStats.PACKETS, 1);
+    try{
+      //data behind length is left over from an older packet, a truncated package would decode it as a wrong package index
+      int payloadSize = sensorData.packageSampleCount * sensorData.channelLayout().channels.length * (sensorData.resolutionBits / 8);
+      if (length < dataOffset + payloadSize){
+        stats.add(StreamStats.MALFORMED_PACKETS, 1);
+        return false;
+      }
+      int packageIndex = ((data[offset + 1] & 0xff) << 8 | (data[offset] & 0xff));
+//                            Log.d(TAG, "package index: " + packageIndex);
+      offset += 2;
+      int newPackageIndex = packageIndex;
+      int lastPackageIndex = sensorData.lastPackageIndex;
+
+      if (packageIndex < lastPackageIndex){
+        packageIndex += 65536;// package index is U16
+      }else if (packageIndex == lastPackageIndex){
+        //repeated package index
+        stats.add(StreamStats.DUPLICATE_PACKETS, 1);
+        return false;
+      }
+      int deltaPackageIndex = packageIndex - lastPackageIndex;
+      if (deltaPackageIndex > 1){
+        int lostSampleCount = sensorData.packageSampleCount * (deltaPackageIndex - 1);
+        stats.add(StreamStats.LOST_PACKETS, deltaPackageIndex - 1);
+        stats.add(StreamStats.LOST_SAMPLES, lostSampleCount);
+        //missing samples are queued as one range
+        skipSamples(sensorData, lostSampleCount);
+        if (newPackageIndex == 0){
+          sensorData.lastPackageIndex = 65535;
+        }else{
+          sensorData.lastPackageIndex = newPackageIndex - 1;
+        }
+        sensorData.lastPackageCounter += (deltaPackageIndex - 1);
+      }
+      readSamples(data, sensorData, dataOffset);
+      sensorData.lastPackageIndex = newPackageIndex;
+      sensorData.lastPackageCounter++;
+    }catch (RuntimeException e){
+      //malformed package
+      return false;
+    }finally {
+      stats.add(StreamStats.DECODE_NANOS, System.nanoTime() - startNanos);
+    }
+    return true;
+  }
+  //lost samples don't take ring slots, their range is queued as a gap before the next slot
+  void skipSamples(SensorData sensorData, int lostSampleCount){
+    int lastSampleIndex = sensorData.lastPackageCounter * sensorData.packageSampleCount;
+    SampleRecorder recorder = this.recorder;
+    if (recorder != null){
+      recorder.writeSamples(sensorData, lastSampleIndex, lostSampleCount, true, null, 0);
+    }
+
+    int typeIndex = dataTypeIndex(sensorData.dataType);
+    SignalFilter filter = filters[typeIndex];
+    if (filter != null){
+      filter.reset();
+    }
+    SensorData.SampleRing ring = sensorData.prepareRing(batchLatencyMs, batchMaxSamples);
+    if (!ring.flushDeferredGap(ring.writePosition) || !ring.addGap(ring.writePosition, lastSampleIndex, lostSampleCount)){
+      //sender is too slow, the range is queued before the next samples it has room for
+      ring.deferGap(lastSampleIndex, lostSampleCount);
+    }
+    FeatureExtractor featureExtractor = featureExtractors[typeIndex];
+    if (featureExtractor != null){
+      featureExtractor.skip(sensorData, ring, sensorData.channelLayout().channels, lostSampleCount);
+    }
+    //history fills the hole when the next samples arrive
+  }
+
+  void readSamples(byte[] data, SensorData sensorData, int offset){
+    int sampleCount = sensorData.packageSampleCount;
+
+    double K = sensorData.K;
+    int lastSampleIndex = sensorData.lastPackageCounter * sensorData.packageSampleCount;
+    //the package time is known even if its samples are dropped below
+    sensorData.clock.update(lastSampleIndex + sampleCount - 1, packetArrivalNanos, sensorData.sampleRate, sampleCount);
+
+    //impedance and saturation don't change within a package
+    ImpedanceSnapshot snapshot = impedance;
+
+    SampleRecorder recorder = this.recorder;
+    if (recorder != null){
+      //recording does not depend on sender backpressure
+      recorder.writeSamples(sensorData, lastSampleIndex, sampleCount, false, data, offset);
+    }
+
+    SignalFilter filter = filters[dataTypeIndex(sensorData.dataType)];
+    SensorData.SampleRing ring = sensorData.prepareRing(batchLatencyMs, batchMaxSamples);
+    int writePosition = ring.writePosition;
+    if (sampleCount > ring.capacity - (writePosition - ring.readPosition) || !ring.flushDeferredGap(writePosition)){
+      //sender is too slow, drop the whole package, it is sent as lost range once the sender has room again
+      ring.deferGap(lastSampleIndex, sampleCount);
+      sensorData.droppedSamples += sampleCount;
+      if (filter != null){
+        filter.reset();
+      }
+      return;
+    }
+    int firstWritePosition = writePosition;
+    int firstSampleIndex = lastSampleIndex;
+    int slotMask = ring.slotMask;
+    long arrivalNanos = packetArrivalNanos;
+
+    for (int sampleIndex = 0;sampleIndex < sampleCount; ++sampleIndex, ++lastSampleIndex){
+      int slot = (writePosition + sampleIndex) & slotMask;
+      ring.sampleIndices[slot] = lastSampleIndex;
+      ring.setLost(slot, false);
+      ring.impedanceSnapshots[slot] = snapshot;
+      ring.arrivalNanos[slot] = arrivalNanos;
+    }
+
+    //ECG channels share the impedance slot behind the EEG channels
+    int sharedImpedanceSlot = -1;
+    if (sensorData.dataType == SensorProfile.NotifDataType.NTF_ECG){
+      SensorData sensorDataEEG = this.sensorData[DATA_TYPE_EEG];
+      sharedImpedanceSlot = sensorDataEEG != null ? sensorDataEEG.channelCount : 0;
+    }
+    SensorData.ChannelLayout layout = sensorData.prepareChannelLayout(sharedImpedanceSlot);
+    int[] channels = layout.channels;
+    int activeChannelCount = channels.length;
+
+    int resolutionBits = sensorData.resolutionBits;
+    if (resolutionBits == 8){
+      decode8Bit(data, offset, sampleCount, channels, activeChannelCount, ring.channelData, writePosition, slotMask, K);
+    }else if (resolutionBits == 16){
+      decode16BitLsb(data, offset, sampleCount, channels, activeChannelCount, ring.channelData, writePosition, slotMask, K);
+    }else if (resolutionBits == 24){
+      decode24BitMsb(data, offset, sampleCount, channels, activeChannelCount, ring.channelData, writePosition, slotMask, K);
+    }else{
+      //unknown resolution
+      for (int index = 0; index < activeChannelCount; ++index){
+        fillColumn(ring.channelData[channels[index]], writePosition, sampleCount, slotMask, 0);
+      }
+    }
+    applyFilter(filter, sensorData, ring, channels, writePosition, sampleCount);
+    FeatureExtractor featureExtractor = featureExtractors[dataTypeIndex(sensorData.dataType)];
+    if (featureExtractor != null){
+      featureExtractor.process(sensorData, ring, channels, writePosition, sampleCount);
+    }
+    writePosition += sampleCount;
+    //publish samples to sender
+    ring.writePosition = writePosition;
+    stats[dataTypeIndex(sensorData.dataType)].add(StreamStats.DECODED_SAMPLES, sampleCount);
+
+    int durationMs = historyDurationMs[dataTypeIndex(sensorData.dataType)];
+    if (durationMs > 0 || sensorData.history != null){
+      appendHistory(sensorData, sensorData.prepareHistory(durationMs, firstSampleIndex), ring, firstWritePosition, firstSampleIndex, sampleCount);
+    }
+  }
+
+  //bulk decoders, samples are interleaved: channel index of sample sampleIndex is at
+  //offset + (sampleIndex * channelCount + index) * bytes, out is written at ring slots (position + sampleIndex) & slotMask
+  static void decode8Bit(byte[] data, int offset, int sampleCount, int[] channels, int channelCount,
+                         float[][] out, int position, int slotMask, double K){
+    for (int index = 0;index < channelCount;++index){
+      float[] column = out[channels[index]];
+      for (int sampleIndex = 0, byteOffset = offset + index;sampleIndex < sampleCount;++sampleIndex, byteOffset += channelCount){
+        int rawData = (0xff & data[byteOffset]) - 128;
+        column[(position + sampleIndex) & slotMask] = (float)(rawData * K);
+      }
+    }
+  }
+
+  //it's native short LSB
+  static void decode16BitLsb(byte[] data, int offset, int sampleCount, int[] channels, int channelCount,
+                             float[][] out, int position, int slotMask, double K){
+    int stride = channelCount * 2;
+    for (int index = 0;index < channelCount;++index){
+      float[] column = out[channels[index]];
+      for (int sampleIndex = 0, byteOffset = offset + index * 2;sampleIndex < sampleCount;++sampleIndex, byteOffset += stride){
+        int rawData = (short)((0xff & data[byteOffset + 1]) << 8 | (0xff & data[byteOffset]));
+        column[(position + sampleIndex) & slotMask] = (float)(rawData * K);
+      }
+    }
+  }
+
+  //it's MSB
+  static void decode24BitMsb(byte[] data, int offset, int sampleCount, int[] channels, int channelCount,
+                             float[][] out, int position, int slotMask, double K){
+    int stride = channelCount * 3;
+    for (int index = 0;index < channelCount;++index){
+      float[] column = out[channels[index]];
+      for (int sampleIndex = 0, byteOffset = offset + index * 3;sampleIndex < sampleCount;++sampleIndex, byteOffset += stride){
+        int rawData = ((0xff & data[byteOffset]) << 16 | (0xff & data[byteOffset + 1]) << 8 | (0xff & data[byteOffset + 2])) - 8388608;
+        column[(position + sampleIndex) & slotMask] = (float)(rawData * K);
+      }
+    }
+  }
+
+  //lost samples restart the filter from the next sample, see skipSamples
+  private static void applyFilter(SignalFilter filter, SensorData sensorData, SensorData.SampleRing ring, int[] channels,
+                                  int position, int sampleCount){
+    if (filter == null || filter.replaceData){
+      ring.channelFiltered = null;
+      if (filter == null){
+        return;
+      }
+    }else if (ring.channelFiltered == null){
+      ring.channelFiltered = new float[ring.channelCount][ring.capacity];
+    }
+    float[][] out = filter.replaceData ? ring.channelData : ring.channelFiltered;
+    filter.prepare(sensorData.sampleRate, sensorData.channelCount);
+    for (int channelIndex : channels){
+      filter.process(channelIndex, ring.channelData[channelIndex], out[channelIndex], position, sampleCount, ring.slotMask);
+    }
+  }
+
+  static void fillColumn(float[] column, int position, int sampleCount, int slotMask, float value){
+    for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+      column[(position + sampleIndex) & slotMask] = value;
+    }
+  }
+
+  //history slots are addressed by sample index, holes are filled as lost samples
+  private static void appendHistory(SensorData sensorData, SensorData.SampleRing history, SensorData.SampleRing ring, int ringPosition, int firstSampleIndex, int sampleCount){
+    if (history == null){
+      return;
+    }
+    history.reservePosition = firstSampleIndex + sampleCount;
+    int historyPosition = Math.max(history.writePosition, firstSampleIndex - history.capacity);
+    for (;historyPosition < firstSampleIndex;++historyPosition){
+      int slot = historyPosition & history.slotMask;
+      history.sampleIndices[slot] = historyPosition;
+      history.setLost(slot, true);
+      history.impedanceSnapshots[slot] = ImpedanceSnapshot.EMPTY;
+      for (int channelIndex = 0; channelIndex < sensorData.channelCount; ++channelIndex){
+        history.channelData[channelIndex][slot] = 0;
+      }
+    }
+    for (int index = 0;index < sampleCount;++index, ++historyPosition, ++ringPosition){
+      int slot = historyPosition & history.slotMask;
+      int ringSlot = ringPosition & ring.slotMask;
+      history.sampleIndices[slot] = ring.sampleIndices[ringSlot];
+      history.setLost(slot, ring.isLost(ringSlot));
+      history.impedanceSnapshots[slot] = ring.impedanceSnapshots[ringSlot];
+      for (int channelIndex = 0; channelIndex < sensorData.channelCount; ++channelIndex){
+        history.channelData[channelIndex][slot] = ring.channelData[channelIndex][ringSlot];
+      }
+    }
+    //publish samples to readWindow
+    history.writePosition = historyPosition;
+  }
+}
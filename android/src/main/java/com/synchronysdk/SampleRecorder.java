@@ -0,0 +1,228 @@
+package com.synchronysdk;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+//append only binary recording, samples are written by the device decoder thread
+//
+//file layout (little endian):
+//  header: "SYNR", int16 version, int16 reserved, int64 start time in ms, int16 length + utf8 device mac
+//  blocks: int8 block type followed by
+//    BLOCK_STREAM: int8 dataType, int32 sampleRate, int64 channelMask, int16 channelCount, int8 resolutionBits,
+//                  int16 packageSampleCount, float64 K
+//    BLOCK_SAMPLES: int8 dataType, int32 first sampleIndex, int32 sampleCount, int8 flags,
+//                  raw samples as sent by device (sampleCount * active channels * resolutionBits / 8), absent if FLAG_LOST
+//    BLOCK_IMPEDANCE: int16 count, float32 impedance[count], float32 saturation[count]
+//a BLOCK_STREAM is written before the first samples of a stream in every file and after stream config changes
+class SampleRecorder {
+  static final int MAGIC = 0x524e5953; //"SYNR"
+  static final short VERSION = 1;
+  static final byte BLOCK_STREAM = 1;
+  static final byte BLOCK_SAMPLES = 2;
+  static final byte BLOCK_IMPEDANCE = 3;
+  static final byte FLAG_LOST = 1;
+  static final int BUFFER_SIZE = 1 << 20;
+
+  //stream config as written in the last stream block, init changes the config of the same SensorData
+  private static class StreamConfig {
+    final int sampleRate;
+    final long channelMask;
+    final int channelCount;
+    final int resolutionBits;
+    final int packageSampleCount;
+    final double K;
+
+    StreamConfig(SensorData sensorData){
+      sampleRate = sensorData.sampleRate;
+      channelMask = sensorData.channelMask;
+      channelCount = sensorData.channelCount;
+      resolutionBits = sensorData.resolutionBits;
+      packageSampleCount = sensorData.packageSampleCount;
+      K = sensorData.K;
+    }
+
+    boolean matches(SensorData sensorData){
+      return sampleRate == sensorData.sampleRate && channelMask == sensorData.channelMask
+        && channelCount == sensorData.channelCount && resolutionBits == sensorData.resolutionBits
+        && packageSampleCount == sensorData.packageSampleCount && Double.compare(K, sensorData.K) == 0;
+    }
+  }
+
+  private final String deviceMac;
+  private final ByteBuffer buffer;
+  private final StreamConfig[] describedStreams = new StreamConfig[SampleDecoder.DATA_TYPE_COUNT];
+  private final int[] sampleBytes = new int[SampleDecoder.DATA_TYPE_COUNT];
+  private FileChannel channel;
+  private String filePath;
+  private ImpedanceSnapshot lastImpedance;
+  private long bytesWritten;
+  private volatile String errorMsg;
+
+  SampleRecorder(String deviceMac){
+    this.deviceMac = deviceMac;
+    buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public synchronized void open(String filePath) throws IOException {
+    close();
+    channel = new FileOutputStream(filePath, false).getChannel();
+    this.filePath = filePath;
+    bytesWritten = 0;
+    errorMsg = null;
+    for (int index = 0;index < describedStreams.length;++index){
+      describedStreams[index] = null;
+    }
+    byte[] mac = deviceMac.getBytes(Charset.forName("UTF-8"));
+    buffer.putInt(MAGIC);
+    buffer.putShort(VERSION);
+    buffer.putShort((short) 0);
+    buffer.putLong(System.currentTimeMillis());
+    buffer.putShort((short) mac.length);
+    buffer.put(mac);
+    if (lastImpedance != null){
+      putImpedance(lastImpedance);
+    }
+    flush();
+  }
+
+  //finish current file and continue in a new one, stream config and impedance are written again
+  public synchronized void rotate(String filePath) throws IOException {
+    open(filePath);
+  }
+
+  public synchronized void close() throws IOException {
+    if (channel == null){
+      return;
+    }
+    try{
+      flush();
+    }finally {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  public synchronized boolean isOpen(){
+    return channel != null;
+  }
+
+  public synchronized String filePath(){
+    return filePath;
+  }
+
+  public synchronized long bytesWritten(){
+    return bytesWritten + buffer.position();
+  }
+
+  //returns the last write error once, recorder is closed after an error
+  public String takeError(){
+    String result = errorMsg;
+    if (result != null){
+      errorMsg = null;
+    }
+    return result;
+  }
+
+  //called on decoder thread, data at offset holds sampleCount samples unless lost
+  public synchronized void writeSamples(SensorData sensorData, int firstSampleIndex,
+                                        int sampleCount, boolean lost, byte[] data, int offset){
+    if (channel == null){
+      return;
+    }
+    int typeIndex = SampleDecoder.dataTypeIndex(sensorData.dataType);
+    if (typeIndex < 0){
+      return;
+    }
+    try{
+      StreamConfig described = describedStreams[typeIndex];
+      if (described == null || !described.matches(sensorData)){
+        putStream(sensorData, typeIndex);
+      }
+      int payloadSize = lost ? 0 : sampleCount * sampleBytes[typeIndex];
+      ensureRemaining(11 + payloadSize);
+      buffer.put(BLOCK_SAMPLES);
+      buffer.put((byte) sensorData.dataType);
+      buffer.putInt(firstSampleIndex);
+      buffer.putInt(sampleCount);
+      buffer.put(lost ? FLAG_LOST : 0);
+      if (payloadSize > 0){
+        buffer.put(data, offset, payloadSize);
+      }
+    }catch (IOException e){
+      fail(e);
+    }
+  }
+
+  //called on decoder thread when a new impedance package arrives
+  public synchronized void writeImpedance(ImpedanceSnapshot impedance){
+    lastImpedance = impedance;
+    if (channel == null){
+      return;
+    }
+    try{
+      putImpedance(impedance);
+    }catch (IOException e){
+      fail(e);
+    }
+  }
+
+  private void putStream(SensorData sensorData, int typeIndex) throws IOException {
+    StreamConfig config = new StreamConfig(sensorData);
+    sampleBytes[typeIndex] = sensorData.channelLayout().channels.length * (config.resolutionBits / 8);
+    describedStreams[typeIndex] = config;
+
+    ensureRemaining(27);
+    buffer.put(BLOCK_STREAM);
+    buffer.put((byte) sensorData.dataType);
+    buffer.putInt(config.sampleRate);
+    buffer.putLong(config.channelMask);
+    buffer.putShort((short) config.channelCount);
+    buffer.put((byte) config.resolutionBits);
+    buffer.putShort((short) config.packageSampleCount);
+    buffer.putDouble(config.K);
+  }
+
+  private void putImpedance(ImpedanceSnapshot impedance) throws IOException {
+    int count = impedance.count();
+    ensureRemaining(3 + count * 8);
+    buffer.put(BLOCK_IMPEDANCE);
+    buffer.putShort((short) count);
+    for (int index = 0;index < count;++index){
+      buffer.putFloat(impedance.impedance[index]);
+    }
+    for (int index = 0;index < count;++index){
+      buffer.putFloat(impedance.saturation[index]);
+    }
+  }
+
+  private void ensureRemaining(int size) throws IOException {
+    if (buffer.remaining() < size){
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    try{
+      while (buffer.hasRemaining()){
+        bytesWritten += channel.write(buffer);
+      }
+    }finally {
+      buffer.clear();
+    }
+  }
+
+  private void fail(IOException e){
+    errorMsg = "recording failed: " + e.getLocalizedMessage();
+    try{
+      channel.close();
+    }catch (IOException ignored){
+    }
+    channel = null;
+  }
+}
@@ -0,0 +1,100 @@
+package com.synchronysdk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+//devices seen by a scan, one entry per mac with exponentially smoothed rssi
+//advertisements come from the scan callback thread, deltas are taken by the scan task since the last one,
+//a device is updated when its name or smoothed rssi moved by REPORT_RSSI_CHANGE, removed when not seen for expireNanos
+class ScanRegistry {
+  static final long RSSI_TIME_CONSTANT_NANOS = 2_000_000_000L;
+  static final int REPORT_RSSI_CHANGE = 3;
+
+  //immutable, as sent to JS
+  static class Entry {
+    final String mac;
+    final String name;
+    final int rssi;
+
+    Entry(String mac, String name, int rssi){
+      this.mac = mac;
+      this.name = name;
+      this.rssi = rssi;
+    }
+  }
+
+  static class Delta {
+    final ArrayList<Entry> added = new ArrayList<>();
+    final ArrayList<Entry> updated = new ArrayList<>();
+    final ArrayList<String> removed = new ArrayList<>();
+
+    public boolean isEmpty(){
+      return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+  }
+
+  private static class Device {
+    String name;
+    double rssi;
+    long lastSeenNanos;
+    //last sent to JS, null before the device was added
+    Entry reported;
+  }
+
+  private final HashMap<String, Device> devices = new HashMap<>();
+
+  public synchronized void clear(){
+    devices.clear();
+  }
+
+  public synchronized int size(){
+    return devices.size();
+  }
+
+  public synchronized void onAdvertisement(String mac, String name, int rssi, long nowNanos){
+    Device device = devices.get(mac);
+    if (device == null){
+      device = new Device();
+      device.rssi = rssi;
+      devices.put(mac, device);
+    }else{
+      //time based weight, bursts of advertisements don't move it faster
+      double weight = 1 - Math.exp(-(double) Math.max(0, nowNanos - device.lastSeenNanos) / RSSI_TIME_CONSTANT_NANOS);
+      device.rssi += weight * (rssi - device.rssi);
+    }
+    if (name != null){
+      device.name = name;
+    }
+    device.lastSeenNanos = nowNanos;
+  }
+
+  //changes since the last call
+  public synchronized Delta takeDelta(long nowNanos, long expireNanos){
+    Delta delta = new Delta();
+    Iterator<HashMap.Entry<String, Device>> iterator = devices.entrySet().iterator();
+    while (iterator.hasNext()){
+      HashMap.Entry<String, Device> item = iterator.next();
+      String mac = item.getKey();
+      Device device = item.getValue();
+      if (nowNanos - device.lastSeenNanos > expireNanos){
+        iterator.remove();
+        if (device.reported != null){
+          delta.removed.add(mac);
+        }
+        continue;
+      }
+      int rssi = (int) Math.round(device.rssi);
+      Entry reported = device.reported;
+      if (reported == null){
+        device.reported = new Entry(mac, device.name, rssi);
+        delta.added.add(device.reported);
+      }else if (Math.abs(rssi - reported.rssi) >= REPORT_RSSI_CHANGE
+        || (device.name != null && !device.name.equals(reported.name))){
+        device.reported = new Entry(mac, device.name, rssi);
+        delta.updated.add(device.reported);
+      }
+    }
+    return delta;
+  }
+}
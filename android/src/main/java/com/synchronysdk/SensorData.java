@@ -0,0 +1,269 @@
+package com.synchronysdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//stream config and decoded sample rings of one data type
+class SensorData {
+  static final int RING_BUFFER_SECONDS = 2;
+  static final int MAX_HISTORY_SAMPLES = 1 << 20;
+  //limits of setDataBatchPolicy, rings never grow past MAX_RING_SAMPLES
+  static final int MAX_BATCH_LATENCY_MS = 10000;
+  static final int MAX_BATCH_SAMPLES = 1 << 16;
+  static final int MAX_RING_SAMPLES = 1 << 20;
+
+  public String deviceMac;
+  public String deviceName;
+  public int dataType;
+  public int lastPackageCounter;
+  public int lastPackageIndex;
+  public int resolutionBits;
+  public int sampleRate;
+  public int channelCount;
+  public long channelMask;
+  public int packageSampleCount;
+  public double K;
+
+  //columnar sample ring, written by the decoder thread and drained by the sender without locking
+  //lost samples don't take slots, they are queued as ranges next to the slots
+  static class SampleRing {
+    static final int GAP_CAPACITY = 64;
+    final int channelCount;
+    final int capacity;
+    final int slotMask;
+    final int[] sampleIndices;
+    final float[][] channelData;
+    //filter output sent next to data, set by the decoder thread before publishing samples
+    float[][] channelFiltered;
+    //impedance of the package each sample was decoded with
+    final ImpedanceSnapshot[] impedanceSnapshots;
+    final long[] lostFlags;
+    //System.nanoTime() when the package of each sample was received, only set for live rings
+    long[] arrivalNanos;
+    //only producer writes writePosition, only consumer writes readPosition
+    volatile int writePosition;
+    volatile int readPosition;
+    //lost ranges, gap n is before slot position gapPositions[n & (GAP_CAPACITY - 1)]
+    final int[] gapPositions = new int[GAP_CAPACITY];
+    final int[] gapFirstIndices = new int[GAP_CAPACITY];
+    final int[] gapSampleCounts = new int[GAP_CAPACITY];
+    //sample index step between the lost samples of a range, decimated rings count lost samples of the decimated stream
+    int gapSampleStep = 1;
+    //only producer writes gapWritePosition, only consumer writes gapReadPosition
+    volatile int gapWritePosition;
+    volatile int gapReadPosition;
+    //lost range not queued yet because the consumer was too slow, it ends at the next sample, producer only
+    int deferredFirstIndex;
+    int deferredSampleCount;
+    //history rings are addressed by sample index, first sample index written
+    int firstPosition;
+    //history slots below reservePosition - capacity may be overwritten at any time
+    volatile int reservePosition;
+
+    SampleRing(int channelCount, int minCapacity){
+      int slotCount = 64;
+      while (slotCount < minCapacity){
+        slotCount <<= 1;
+      }
+      this.channelCount = channelCount;
+      this.capacity = slotCount;
+      this.slotMask = slotCount - 1;
+      this.sampleIndices = new int[slotCount];
+      this.channelData = new float[channelCount][slotCount];
+      this.impedanceSnapshots = new ImpedanceSnapshot[slotCount];
+      this.lostFlags = new long[slotCount >>> 6];
+    }
+
+    public int pendingSampleCount(){
+      return writePosition - readPosition;
+    }
+
+    //called on producer thread before the slot at position is published, false when the consumer is too slow
+    public boolean addGap(int position, int firstSampleIndex, int sampleCount){
+      int gapPosition = gapWritePosition;
+      if (gapPosition - gapReadPosition >= GAP_CAPACITY){
+        return false;
+      }
+      int entry = gapPosition & (GAP_CAPACITY - 1);
+      gapPositions[entry] = position;
+      gapFirstIndices[entry] = firstSampleIndex;
+      gapSampleCounts[entry] = sampleCount;
+      gapWritePosition = gapPosition + 1;
+      return true;
+    }
+
+    //called on producer thread, samples after the deferred range extend it
+    public void deferGap(int firstSampleIndex, int sampleCount){
+      if (deferredSampleCount == 0){
+        deferredFirstIndex = firstSampleIndex;
+      }
+      deferredSampleCount += sampleCount;
+    }
+
+    //called on producer thread before the slot at position is published, false while the gap queue is still full
+    public boolean flushDeferredGap(int position){
+      if (deferredSampleCount == 0){
+        return true;
+      }
+      if (!addGap(position, deferredFirstIndex, deferredSampleCount)){
+        return false;
+      }
+      deferredSampleCount = 0;
+      return true;
+    }
+
+    //called on consumer thread, gaps up to and including slot position endPosition
+    public int pendingGapCount(int endPosition){
+      int gapPosition = gapReadPosition;
+      int gapEnd = gapWritePosition;
+      while (gapPosition != gapEnd && gapPositions[gapPosition & (GAP_CAPACITY - 1)] - endPosition <= 0){
+        ++gapPosition;
+      }
+      return gapPosition - gapReadPosition;
+    }
+
+    //called on consumer thread
+    public void discardPending(){
+      readPosition = writePosition;
+      gapReadPosition = gapWritePosition;
+    }
+
+    public boolean isLost(int slot){
+      return (lostFlags[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public void setLost(int slot, boolean isLost){
+      if (isLost){
+        lostFlags[slot >>> 6] |= (1L << slot);
+      }else{
+        lostFlags[slot >>> 6] &= ~(1L << slot);
+      }
+    }
+  }
+  //active channel tables of one stream config, immutable once published
+  static class ChannelLayout {
+    final int channelCount;
+    final long channelMask;
+    final int sharedImpedanceSlot;
+    //ring column of each active channel, in package order
+    final int[] channels;
+    //impedance / saturation index of each active channel
+    final int[] impedanceSlots;
+
+    //sharedImpedanceSlot < 0 maps active channels to consecutive impedance slots,
+    //otherwise all channels use that slot
+    ChannelLayout(int channelCount, long channelMask, int sharedImpedanceSlot){
+      this.channelCount = channelCount;
+      this.channelMask = channelMask;
+      this.sharedImpedanceSlot = sharedImpedanceSlot;
+      int maskedCount = Math.max(0, Math.min(channelCount, 64));
+      long activeMask = maskedCount >= 64 ? channelMask : channelMask & ((1L << maskedCount) - 1);
+      channels = new int[Long.bitCount(activeMask)];
+      impedanceSlots = new int[channels.length];
+      for (int index = 0;activeMask != 0;++index){
+        channels[index] = Long.numberOfTrailingZeros(activeMask);
+        impedanceSlots[index] = sharedImpedanceSlot >= 0 ? sharedImpedanceSlot : index;
+        activeMask &= activeMask - 1;
+      }
+    }
+
+    boolean matches(int channelCount, long channelMask, int sharedImpedanceSlot){
+      return this.channelCount == channelCount && this.channelMask == channelMask
+        && this.sharedImpedanceSlot == sharedImpedanceSlot;
+    }
+  }
+  public volatile SampleRing ring;
+  public long droppedSamples;
+  //sample index to time, updated by the decoder thread for every package
+  public final SampleClock clock = new SampleClock();
+  public ByteBuffer packBuffer;
+  //last samples kept for readWindow, written by decoder thread, read by JS thread
+  public volatile SampleRing history;
+  public ByteBuffer historyPackBuffer;
+  private volatile ChannelLayout layout;
+
+  public SensorData(){
+
+  }
+
+  public void clear(){
+    lastPackageCounter = 0;
+    lastPackageIndex = 0;
+    ring = null;
+    history = null;
+    clock.clear();
+  }
+
+  public int pendingSampleCount(){
+    SampleRing current = ring;
+    return current == null ? 0 : current.pendingSampleCount();
+  }
+
+  //called on producer thread, a new ring drops samples not sent yet, it only happens when config changes
+  public SampleRing prepareRing(int batchLatencyMs, int batchMaxSamples){
+    long minCapacity = Math.max((long) sampleRate * RING_BUFFER_SECONDS, (long) packageSampleCount * 8);
+    minCapacity = Math.max(minCapacity, (long) sampleRate * batchLatencyMs / 1000 * 2);
+    minCapacity = Math.min(Math.max(minCapacity, (long) batchMaxSamples * 2), MAX_RING_SAMPLES);
+    SampleRing current = ring;
+    if (current == null || current.channelCount != channelCount || current.capacity < minCapacity){
+      current = new SampleRing(channelCount, (int) minCapacity);
+      current.arrivalNanos = new long[current.capacity];
+      ring = current;
+    }
+    return current;
+  }
+
+  //called on producer thread, returns null when history is disabled
+  public SampleRing prepareHistory(int durationMs, int firstSampleIndex){
+    if (durationMs <= 0){
+      history = null;
+      return null;
+    }
+    int minCapacity = (int) Math.min((long) sampleRate * durationMs / 1000, MAX_HISTORY_SAMPLES);
+    SampleRing current = history;
+    if (current == null || current.channelCount != channelCount || current.capacity < minCapacity
+      || current.writePosition > firstSampleIndex){
+      current = new SampleRing(channelCount, minCapacity);
+      current.firstPosition = firstSampleIndex;
+      current.writePosition = firstSampleIndex;
+      current.reservePosition = firstSampleIndex;
+      history = current;
+    }
+    return current;
+  }
+
+  //config may change after the stream is published, so the tables are checked on every use
+  public ChannelLayout prepareChannelLayout(int sharedImpedanceSlot){
+    ChannelLayout current = layout;
+    if (current == null || !current.matches(channelCount, channelMask, sharedImpedanceSlot)){
+      current = new ChannelLayout(channelCount, channelMask, sharedImpedanceSlot);
+      layout = current;
+    }
+    return current;
+  }
+
+  //for readers that only need active channels, keeps the impedance mapping of the decoder
+  public ChannelLayout channelLayout(){
+    ChannelLayout current = layout;
+    return prepareChannelLayout(current != null ? current.sharedImpedanceSlot : -1);
+  }
+
+  public ByteBuffer preparePackBuffer(int size){
+    packBuffer = preparePackBuffer(packBuffer, size);
+    return packBuffer;
+  }
+
+  public ByteBuffer prepareHistoryPackBuffer(int size){
+    historyPackBuffer = preparePackBuffer(historyPackBuffer, size);
+    return historyPackBuffer;
+  }
+
+  static ByteBuffer preparePackBuffer(ByteBuffer buffer, int size){
+    if (buffer == null || buffer.capacity() < size){
+      buffer = ByteBuffer.allocate(Math.max(size, 4096));
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    buffer.clear();
+    return buffer;
+  }
+}
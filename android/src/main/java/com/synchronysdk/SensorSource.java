@@ -0,0 +1,23 @@
+package com.synchronysdk;
+
+//produces notification frames of a virtual device, frames take the same pipeline and decoder path as BLE data
+//it has no android dependency so sources can drive the decoder in JVM benchmarks
+interface SensorSource {
+  interface Listener {
+    //called before the first frame of a stream and when its config changes
+    void onStream(SensorData sensorData);
+    //returns false if the frame can't be accepted now, the source decides to offer it again or drop it
+    boolean onFrame(byte[] data);
+    //errorMsg is null at the end of the source or after stop
+    void onFinished(String errorMsg);
+  }
+
+  String deviceMac();
+
+  boolean isRunning();
+
+  //starts from the beginning, a running source is stopped first
+  void start(Listener listener);
+
+  void stop();
+}
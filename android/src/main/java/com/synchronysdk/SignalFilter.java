@@ -0,0 +1,152 @@
+package com.synchronysdk;
+
+//notch and band pass filter chain of one stream, cascaded biquads in transposed direct form II
+//coefficients follow the RBJ audio EQ cookbook, band pass edges are 4th order butterworth
+//runs on the device decoder thread, the JS thread replaces the whole filter to change it
+class SignalFilter {
+  static final double NOTCH_Q = 30;
+  //pole pair Qs of a 4th order butterworth filter
+  static final double[] BUTTERWORTH_Q = {0.54119610, 1.30656296};
+  static final int SHAPE_NOTCH = 0;
+  static final int SHAPE_HIGH_PASS = 1;
+  static final int SHAPE_LOW_PASS = 2;
+
+  final double notchFrequency;
+  final double highPassFrequency;
+  final double lowPassFrequency;
+  //true writes filtered values to data, otherwise they are sent next to data
+  final boolean replaceData;
+
+  private int sampleRate;
+  private int sectionCount;
+  //b0, b1, b2, a1, a2 per section, normalized by a0
+  private double[] coefficients = new double[0];
+  //z1, z2 per section per channel
+  private double[] state = new double[0];
+  //false until the channel state is set from its first sample, cleared after lost samples
+  private boolean[] primed = new boolean[0];
+
+  //0 disables a stage
+  SignalFilter(double notchFrequency, double highPassFrequency, double lowPassFrequency, boolean replaceData){
+    this.notchFrequency = notchFrequency;
+    this.highPassFrequency = highPassFrequency;
+    this.lowPassFrequency = lowPassFrequency;
+    this.replaceData = replaceData;
+  }
+
+  boolean isValid(){
+    if (notchFrequency < 0 || highPassFrequency < 0 || lowPassFrequency < 0){
+      return false;
+    }
+    return highPassFrequency <= 0 || lowPassFrequency <= 0 || highPassFrequency < lowPassFrequency;
+  }
+
+  //designs sections when sample rate changes, stages at or above nyquist are skipped
+  public void prepare(int sampleRate, int channelCount){
+    if (sampleRate != this.sampleRate){
+      this.sampleRate = sampleRate;
+      double[] sections = new double[5 * 5];
+      int count = 0;
+      double nyquist = sampleRate / 2.0;
+      if (notchFrequency > 0 && notchFrequency < nyquist){
+        count = design(sections, count, notchFrequency, NOTCH_Q, SHAPE_NOTCH);
+      }
+      if (highPassFrequency > 0 && highPassFrequency < nyquist){
+        for (double q : BUTTERWORTH_Q){
+          count = design(sections, count, highPassFrequency, q, SHAPE_HIGH_PASS);
+        }
+      }
+      if (lowPassFrequency > 0 && lowPassFrequency < nyquist){
+        for (double q : BUTTERWORTH_Q){
+          count = design(sections, count, lowPassFrequency, q, SHAPE_LOW_PASS);
+        }
+      }
+      coefficients = sections;
+      sectionCount = count;
+      state = new double[0];
+    }
+    if (state.length != channelCount * sectionCount * 2){
+      state = new double[channelCount * sectionCount * 2];
+      primed = new boolean[channelCount];
+    }
+  }
+
+  //lost samples carry no signal, the next sample restarts the channels from a steady state
+  public void reset(){
+    for (int index = 0;index < primed.length;++index){
+      primed[index] = false;
+    }
+  }
+
+  //filters sampleCount ring slots from position of channel channelIndex, in and out may be the same column
+  public void process(int channelIndex, float[] in, float[] out, int position, int sampleCount, int slotMask){
+    if (sectionCount == 0){
+      if (in != out){
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          int slot = (position + sampleIndex) & slotMask;
+          out[slot] = in[slot];
+        }
+      }
+      return;
+    }
+    double[] c = coefficients;
+    double[] z = state;
+    int stateOffset = channelIndex * sectionCount * 2;
+    if (!primed[channelIndex]){
+      prime(stateOffset, in[position & slotMask]);
+      primed[channelIndex] = true;
+    }
+    for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+      int slot = (position + sampleIndex) & slotMask;
+      double x = in[slot];
+      for (int section = 0, k = 0, s = stateOffset;section < sectionCount;++section, k += 5, s += 2){
+        double y = c[k] * x + z[s];
+        z[s] = c[k + 1] * x - c[k + 3] * y + z[s + 1];
+        z[s + 1] = c[k + 2] * x - c[k + 4] * y;
+        x = y;
+      }
+      out[slot] = (float) x;
+    }
+  }
+
+  //state of a constant input x, avoids the step response at start and after gaps
+  private void prime(int stateOffset, double x){
+    double[] c = coefficients;
+    for (int section = 0, k = 0, s = stateOffset;section < sectionCount;++section, k += 5, s += 2){
+      double denominator = 1 + c[k + 3] + c[k + 4];
+      double gain = Math.abs(denominator) < 1e-12 ? 0 : (c[k] + c[k + 1] + c[k + 2]) / denominator;
+      double y = gain * x;
+      state[s + 1] = c[k + 2] * x - c[k + 4] * y;
+      state[s] = c[k + 1] * x - c[k + 3] * y + state[s + 1];
+      x = y;
+    }
+  }
+
+  private int design(double[] sections, int index, double frequency, double q, int shape){
+    double w0 = 2 * Math.PI * frequency / sampleRate;
+    double cos = Math.cos(w0);
+    double alpha = Math.sin(w0) / (2 * q);
+    double b0, b1, b2;
+    if (shape == SHAPE_NOTCH){
+      b0 = 1;
+      b1 = -2 * cos;
+      b2 = 1;
+    }else if (shape == SHAPE_HIGH_PASS){
+      b0 = (1 + cos) / 2;
+      b1 = -(1 + cos);
+      b2 = (1 + cos) / 2;
+    }else{
+      b0 = (1 - cos) / 2;
+      b1 = 1 - cos;
+      b2 = (1 - cos) / 2;
+    }
+    double a0 = 1 + alpha;
+    int offset = index * 5;
+    sections[offset] = b0 / a0;
+    sections[offset + 1] = b1 / a0;
+    sections[offset + 2] = b2 / a0;
+    sections[offset + 3] = -2 * cos / a0;
+    sections[offset + 4] = (1 - alpha) / a0;
+    return index + 1;
+  }
+}
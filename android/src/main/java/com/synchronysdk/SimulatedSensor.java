@@ -0,0 +1,416 @@
+package com.synchronysdk;
+
+import com.sensor.SensorProfile;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//virtual device generating EEG, ECG, ACC + GYRO and impedance notification frames, for load tests without hardware
+//every channel is a sine of an integer frequency with gaussian noise, one second of encoded samples is precomputed per stream,
+//so a frame is a copy and the simulation keeps up with the decoder even when it runs as fast as possible
+//packets can be lost in bursts, duplicated or truncated, the package index starts at firstPackageIndex to cross the u16 wraparound
+class SimulatedSensor implements SensorSource {
+  //same as the firmware, acc and gyro share one frame
+  static final int IMU_SAMPLE_RATE = 50;
+  static final int IMU_CHANNEL_COUNT = 3;
+  //EEG / ECG full scale is +-FULL_SCALE_UV, the sine is 1 / 8 of it and the noise 1 / 256
+  static final double FULL_SCALE_UV = 187500;
+  static final double BASE_FREQUENCY_HZ = 10;
+
+  //read once by the constructor
+  static class Config {
+    String deviceMac = "SIMULATED";
+    //channel count 0 disables the stream
+    int eegChannelCount = 8;
+    int eegSampleRate = 250;
+    int eegResolutionBits = 24;
+    int eegPackageSampleCount = 10;
+    int ecgChannelCount = 0;
+    int ecgSampleRate = 250;
+    int ecgResolutionBits = 24;
+    int ecgPackageSampleCount = 10;
+    boolean imu = true;
+    //0 disables impedance frames, values cover the EEG then the ECG channels
+    int impedanceIntervalMs = 1000;
+    //speed 1 is real time, speed <= 0 sends as fast as the decoder accepts frames
+    double speed = 1;
+    //sample time after which the simulation finishes, 0 runs until stop
+    long durationMs = 0;
+    //decoder expects 1 after clear, other values start with a gap of firstPackageIndex - 1 packets
+    int firstPackageIndex = 1;
+    //packets not sent, in bursts of lossBurst packets on average
+    double lossPercent = 0;
+    int lossBurst = 1;
+    double duplicatePercent = 0;
+    //packets cut to a random length, the decoder must drop them without failing
+    double truncatePercent = 0;
+    long seed = 1;
+
+    //returns null if the config can be simulated
+    String validate(){
+      if (eegChannelCount < 0 || eegChannelCount > 64 || ecgChannelCount < 0 || ecgChannelCount > 64){
+        return "channel count must be in 0-64";
+      }
+      if (eegChannelCount == 0 && ecgChannelCount == 0 && !imu){
+        return "no stream enabled";
+      }
+      if ((eegChannelCount > 0 && !isValidStream(eegSampleRate, eegResolutionBits, eegPackageSampleCount)) ||
+        (ecgChannelCount > 0 && !isValidStream(ecgSampleRate, ecgResolutionBits, ecgPackageSampleCount))){
+        return "invalid sample rate, resolution or package sample count";
+      }
+      if (impedanceIntervalMs < 0 || durationMs < 0 || firstPackageIndex < 0 || firstPackageIndex > 0xffff || lossBurst < 1){
+        return "invalid impedance interval, duration, first package index or loss burst";
+      }
+      if (!isPercent(lossPercent) || !isPercent(duplicatePercent) || !isPercent(truncatePercent)){
+        return "percentages must be in 0-100";
+      }
+      return null;
+    }
+
+    private static boolean isValidStream(int sampleRate, int resolutionBits, int packageSampleCount){
+      return sampleRate > 0 && sampleRate <= 16000 && packageSampleCount > 0 && packageSampleCount <= sampleRate &&
+        (resolutionBits == 8 || resolutionBits == 16 || resolutionBits == 24);
+    }
+
+    private static boolean isPercent(double value){
+      return value >= 0 && value <= 100;
+    }
+  }
+
+  //frames of one notification type, only used by the worker thread
+  private static class Stream {
+    final int dataType;
+    //null for impedance
+    final SensorData sensorData;
+    final int packageSampleCount;
+    final double packetSeconds;
+    //one second of encoded samples, a whole number of sine periods
+    final byte[] period;
+    final int periodSampleCount;
+    final int sampleBytes;
+    final byte[] frame;
+    long packetCounter;
+    int burstRemaining;
+
+    Stream(int dataType, SensorData sensorData, int packageSampleCount, double packetSeconds,
+           byte[] period, int periodSampleCount, int frameSize){
+      this.dataType = dataType;
+      this.sensorData = sensorData;
+      this.packageSampleCount = packageSampleCount;
+      this.packetSeconds = packetSeconds;
+      this.period = period;
+      this.periodSampleCount = periodSampleCount;
+      this.sampleBytes = periodSampleCount > 0 ? period.length / periodSampleCount : 0;
+      this.frame = new byte[frameSize];
+    }
+
+    //a packet is sent when its last sample is measured
+    double dueSeconds(){
+      return (packetCounter + 1) * packetSeconds;
+    }
+  }
+
+  private final Config config;
+  private final AtomicLong sentFrames = new AtomicLong();
+  private final AtomicLong lostFrames = new AtomicLong();
+  private final AtomicLong droppedFrames = new AtomicLong();
+  private volatile Thread worker;
+
+  SimulatedSensor(Config config){
+    String errorMsg = config.validate();
+    if (errorMsg != null){
+      throw new IllegalArgumentException(errorMsg);
+    }
+    this.config = config;
+  }
+
+  @Override
+  public String deviceMac(){
+    return config.deviceMac;
+  }
+
+  @Override
+  public boolean isRunning(){
+    return worker != null;
+  }
+
+  //frames accepted by the listener, duplicates and truncated frames included
+  public long sentFrames(){
+    return sentFrames.get();
+  }
+
+  //frames not sent to simulate radio loss
+  public long lostFrames(){
+    return lostFrames.get();
+  }
+
+  //frames refused by the listener in real time, like BLE notifications arriving at a full pipeline
+  public long droppedFrames(){
+    return droppedFrames.get();
+  }
+
+  //every start sends the same frames from the first package index
+  @Override
+  public synchronized void start(Listener listener){
+    stop();
+    Thread thread = new Thread(() -> run(listener), "SynchronySDK-simulation-" + config.deviceMac);
+    thread.setDaemon(true);
+    worker = thread;
+    thread.start();
+  }
+
+  @Override
+  public synchronized void stop(){
+    Thread thread = worker;
+    worker = null;
+    if (thread != null){
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void run(Listener listener){
+    Thread self = Thread.currentThread();
+    String errorMsg = null;
+    try{
+      simulate(listener, self);
+    }catch (RuntimeException e){
+      errorMsg = "simulation failed: " + e.getLocalizedMessage();
+    }
+    boolean finished = false;
+    synchronized (this){
+      if (worker == self){
+        worker = null;
+        finished = true;
+      }
+    }
+    if (finished || errorMsg != null){
+      listener.onFinished(errorMsg);
+    }
+  }
+
+  private void simulate(Listener listener, Thread self){
+    Random random = new Random(config.seed);
+    Stream[] streams = createStreams(random);
+    for (Stream stream : streams){
+      if (stream.sensorData != null){
+        listener.onStream(stream.sensorData);
+      }
+      if (stream.dataType == SensorProfile.NotifDataType.NTF_ACC_DATA){
+        listener.onStream(gyroSensorData());
+      }
+    }
+    double durationSeconds = config.durationMs / 1000.0;
+    long startTime = System.nanoTime();
+
+    while (worker == self){
+      Stream stream = streams[0];
+      for (int index = 1;index < streams.length;++index){
+        if (streams[index].dueSeconds() < stream.dueSeconds()){
+          stream = streams[index];
+        }
+      }
+      double dueSeconds = stream.dueSeconds();
+      if (durationSeconds > 0 && dueSeconds > durationSeconds){
+        break;
+      }
+      waitUntil(startTime, dueSeconds, self);
+      int packageIndex = (int) ((config.firstPackageIndex + stream.packetCounter) & 0xffff);
+      int length = fillFrame(stream, packageIndex, random);
+      ++stream.packetCounter;
+      if (isLost(stream, random)){
+        lostFrames.lazySet(lostFrames.get() + 1);
+        continue;
+      }
+      byte[] frame = stream.frame;
+      if (random.nextDouble() * 100 < config.truncatePercent){
+        frame = new byte[1 + random.nextInt(length - 1)];
+        System.arraycopy(stream.frame, 0, frame, 0, frame.length);
+      }
+      offer(listener, frame, self);
+      if (random.nextDouble() * 100 < config.duplicatePercent){
+        offer(listener, frame, self);
+      }
+    }
+  }
+
+  private Stream[] createStreams(Random random){
+    Stream[] streams = new Stream[4];
+    int count = 0;
+    if (config.eegChannelCount > 0){
+      streams[count++] = createSampleStream(SensorProfile.NotifDataType.NTF_EEG, config.eegChannelCount,
+        config.eegSampleRate, config.eegResolutionBits, config.eegPackageSampleCount, random);
+    }
+    if (config.ecgChannelCount > 0){
+      streams[count++] = createSampleStream(SensorProfile.NotifDataType.NTF_ECG, config.ecgChannelCount,
+        config.ecgSampleRate, config.ecgResolutionBits, config.ecgPackageSampleCount, random);
+    }
+    if (config.imu){
+      streams[count++] = createImuStream(random);
+    }
+    int impedanceCount = config.eegChannelCount + config.ecgChannelCount;
+    if (config.impedanceIntervalMs > 0 && impedanceCount > 0){
+      streams[count++] = new Stream(SensorProfile.NotifDataType.NTF_IMPEDANCE, null, 0,
+        config.impedanceIntervalMs / 1000.0, null, 0, 3 + impedanceCount * 8);
+    }
+    Stream[] result = new Stream[count];
+    System.arraycopy(streams, 0, result, 0, count);
+    return result;
+  }
+
+  private static Stream createSampleStream(int dataType, int channelCount, int sampleRate, int resolutionBits,
+                                           int packageSampleCount, Random random){
+    SensorData sensorData = new SensorData();
+    sensorData.dataType = dataType;
+    sensorData.sampleRate = sampleRate;
+    sensorData.resolutionBits = resolutionBits;
+    sensorData.channelCount = channelCount;
+    sensorData.channelMask = channelCount == 64 ? -1L : (1L << channelCount) - 1;
+    sensorData.packageSampleCount = packageSampleCount;
+    long fullScale = 1L << (resolutionBits - 1);
+    sensorData.K = FULL_SCALE_UV / fullScale;
+    sensorData.clear();
+
+    int sampleBytes = channelCount * (resolutionBits / 8);
+    byte[] period = new byte[sampleRate * sampleBytes];
+    for (int sampleIndex = 0, offset = 0;sampleIndex < sampleRate;++sampleIndex){
+      double seconds = (double) sampleIndex / sampleRate;
+      for (int channel = 0;channel < channelCount;++channel, offset += resolutionBits / 8){
+        //channels differ in frequency so they can be told apart
+        double value = Math.sin(2 * Math.PI * (BASE_FREQUENCY_HZ + channel) * seconds) / 8 + random.nextGaussian() / 256;
+        int rawData = (int) Math.max(-fullScale, Math.min(fullScale - 1, Math.round(value * fullScale)));
+        encode(period, offset, rawData, resolutionBits);
+      }
+    }
+    return new Stream(dataType, sensorData, packageSampleCount, (double) packageSampleCount / sampleRate,
+      period, sampleRate, 3 + packageSampleCount * sampleBytes);
+  }
+
+  //acc in g at 1 / 8192 per count, gyro in deg/s at 1 / 16.4 per count, 3 channels each, one sample per frame
+  private static Stream createImuStream(Random random){
+    SensorData sensorData = imuSensorData(SensorProfile.NotifDataType.NTF_ACC_DATA, 1 / 8192.0);
+    byte[] period = new byte[IMU_SAMPLE_RATE * 12];
+    for (int sampleIndex = 0, offset = 0;sampleIndex < IMU_SAMPLE_RATE;++sampleIndex){
+      double phase = 2 * Math.PI * sampleIndex / IMU_SAMPLE_RATE;
+      //slow head movement on top of gravity on z
+      int[] values = {
+        (int) Math.round(Math.sin(phase) * 400), (int) Math.round(Math.cos(phase) * 400), 8192 + random.nextInt(32) - 16,
+        (int) Math.round(Math.cos(phase) * 160), (int) Math.round(-Math.sin(phase) * 160), random.nextInt(16) - 8};
+      for (int value : values){
+        encode(period, offset, value, 16);
+        offset += 2;
+      }
+    }
+    return new Stream(SensorProfile.NotifDataType.NTF_ACC_DATA, sensorData, 1, 1.0 / IMU_SAMPLE_RATE,
+      period, IMU_SAMPLE_RATE, RecordingPlayer.ACC_GYRO_FRAME_SIZE);
+  }
+
+  private static SensorData gyroSensorData(){
+    return imuSensorData(SensorProfile.NotifDataType.NTF_GYO_DATA, 1 / 16.4);
+  }
+
+  //same config as the module uses for real devices
+  private static SensorData imuSensorData(int dataType, double K){
+    SensorData sensorData = new SensorData();
+    sensorData.dataType = dataType;
+    sensorData.sampleRate = IMU_SAMPLE_RATE;
+    sensorData.resolutionBits = 16;
+    sensorData.channelCount = IMU_CHANNEL_COUNT;
+    sensorData.channelMask = 255;
+    sensorData.packageSampleCount = 1;
+    sensorData.K = K;
+    sensorData.clear();
+    return sensorData;
+  }
+
+  //8 bit is offset binary, 16 bit is LSB signed, 24 bit is MSB offset binary, like the decoder expects
+  private static void encode(byte[] buffer, int offset, int rawData, int resolutionBits){
+    if (resolutionBits == 8){
+      buffer[offset] = (byte) (rawData + 128);
+    }else if (resolutionBits == 16){
+      buffer[offset] = (byte) rawData;
+      buffer[offset + 1] = (byte) (rawData >> 8);
+    }else{
+      int value = rawData + 8388608;
+      buffer[offset] = (byte) (value >> 16);
+      buffer[offset + 1] = (byte) (value >> 8);
+      buffer[offset + 2] = (byte) value;
+    }
+  }
+
+  //returns the frame length
+  private int fillFrame(Stream stream, int packageIndex, Random random){
+    byte[] frame = stream.frame;
+    frame[0] = (byte) stream.dataType;
+    frame[1] = (byte) packageIndex;
+    frame[2] = (byte) (packageIndex >> 8);
+    if (stream.dataType == SensorProfile.NotifDataType.NTF_IMPEDANCE){
+      int count = (frame.length - 3) / 8;
+      for (int index = 0;index < count;++index){
+        //ohm, a few channels with poor contact
+        float impedance = index % 4 == 3 ? 250000 + random.nextInt(50000) : 5000 + random.nextInt(5000);
+        //firmware sends saturation in range 0-1000
+        float saturation = random.nextInt(50) * 10;
+        putFloat(frame, 3 + index * 4, impedance);
+        putFloat(frame, 3 + (count + index) * 4, saturation);
+      }
+      return frame.length;
+    }
+    int payloadSize = stream.packageSampleCount * stream.sampleBytes;
+    int first = (int) ((stream.packetCounter * stream.packageSampleCount) % stream.periodSampleCount) * stream.sampleBytes;
+    int firstSize = Math.min(payloadSize, stream.period.length - first);
+    System.arraycopy(stream.period, first, frame, 3, firstSize);
+    System.arraycopy(stream.period, 0, frame, 3 + firstSize, payloadSize - firstSize);
+    return frame.length;
+  }
+
+  private static void putFloat(byte[] frame, int offset, float value){
+    int bits = Float.floatToIntBits(value);
+    frame[offset] = (byte) bits;
+    frame[offset + 1] = (byte) (bits >> 8);
+    frame[offset + 2] = (byte) (bits >> 16);
+    frame[offset + 3] = (byte) (bits >> 24);
+  }
+
+  //a burst starts with probability lossPercent / lossBurst, so about lossPercent of the packets are lost
+  private boolean isLost(Stream stream, Random random){
+    if (stream.burstRemaining > 0){
+      --stream.burstRemaining;
+      return true;
+    }
+    if (config.lossPercent > 0 && random.nextDouble() * 100 * config.lossBurst < config.lossPercent){
+      stream.burstRemaining = config.lossBurst - 1;
+      return true;
+    }
+    return false;
+  }
+
+  private void waitUntil(long startTime, double seconds, Thread self){
+    if (config.speed <= 0){
+      return;
+    }
+    long dueTime = startTime + (long) (seconds * 1e9 / config.speed);
+    long delay;
+    while (worker == self && (delay = dueTime - System.nanoTime()) > 0){
+      LockSupport.parkNanos(this, delay);
+    }
+  }
+
+  private void offer(Listener listener, byte[] frame, Thread self){
+    if (config.speed > 0){
+      if (listener.onFrame(frame)){
+        sentFrames.lazySet(sentFrames.get() + 1);
+      }else{
+        droppedFrames.lazySet(droppedFrames.get() + 1);
+      }
+      return;
+    }
+    while (!listener.onFrame(frame)){
+      if (worker != self){
+        return;
+      }
+      LockSupport.parkNanos(this, RecordingPlayer.FULL_RETRY_NANOS);
+    }
+    sentFrames.lazySet(sentFrames.get() + 1);
+  }
+}
@@ -0,0 +1,226 @@
+package com.synchronysdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+//aligns streams of several devices on the System.nanoTime() timeline of their SampleClocks and resamples them to frames at a fixed rate
+//a frame at time t takes the sample of each input nearest to t within half a period of the slower of the frames and the input,
+//so a slower input holds its sample over several frames, a frame is built once now >= t + latency,
+//an input without such a sample is a gap (NaN), samples arriving after their last frame was built are late and dropped
+//inputs are written by the emission worker of their device, frames are collected by one merge thread
+class StreamMerger {
+  static final int MAX_INPUTS = 16;
+  //input buffers hold this much more than the latency, a slower merge thread drops samples
+  static final long INPUT_SLACK_NANOS = 1_000_000_000L;
+  //a merge thread more than this behind skips frames
+  static final long MAX_COLLECT_NANOS = 1_000_000_000L;
+
+  //samples of one data type of one device, single producer / single consumer
+  static class Input {
+    final String deviceMac;
+    final int dataType;
+    final StreamMerger merger;
+    //channel indexes, set by the producer with the first samples, fixed for the merge
+    volatile int[] channels;
+    private long[] timestamps;
+    private float[][] values;
+    private int slotMask;
+    //half the window around a frame in which a sample of this input is used
+    private long halfWindowNanos;
+    //only producer writes writePosition, only consumer writes readPosition
+    private volatile int writePosition;
+    private volatile int readPosition;
+    //producer
+    final AtomicLong lateSamples = new AtomicLong();
+    final AtomicLong droppedSamples = new AtomicLong();
+    //consumer
+    final AtomicLong gapFrames = new AtomicLong();
+
+    Input(StreamMerger merger, String deviceMac, int dataType){
+      this.merger = merger;
+      this.deviceMac = deviceMac;
+      this.dataType = dataType;
+    }
+
+    //called on the emission worker of the device instead of sending the samples, releases all pending slots and gaps of ring
+    public void offer(SensorData sensorData, SensorData.SampleRing ring){
+      int position = ring.readPosition;
+      int sampleCount = ring.writePosition - position;
+      SampleClock.Estimate estimate = sensorData.clock.estimate;
+      int[] layoutChannels = sensorData.channelLayout().channels;
+      if (channels == null && estimate != null && sampleCount > 0){
+        prepare(layoutChannels, sensorData.sampleRate);
+      }
+      int[] current = channels;
+      if (current == null || estimate == null || current.length != layoutChannels.length){
+        //stream config changed during the merge
+        droppedSamples.lazySet(droppedSamples.get() + sampleCount);
+      }else{
+        long nextFrameNanos = merger.nextFrameNanos;
+        int writePosition = this.writePosition;
+        int ringMask = ring.slotMask;
+        long late = 0;
+        long dropped = 0;
+        for (int index = 0;index < sampleCount;++index){
+          int ringSlot = (position + index) & ringMask;
+          long timestampNanos = estimate.timestampNanos(ring.sampleIndices[ringSlot]);
+          if (timestampNanos + halfWindowNanos < nextFrameNanos){
+            ++late;
+            continue;
+          }
+          if (writePosition - readPosition > slotMask){
+            ++dropped;
+            continue;
+          }
+          int slot = writePosition++ & slotMask;
+          timestamps[slot] = timestampNanos;
+          for (int channel = 0;channel < current.length;++channel){
+            values[channel][slot] = ring.channelData[current[channel]][ringSlot];
+          }
+        }
+        //publish samples to the merge thread
+        this.writePosition = writePosition;
+        if (late > 0){
+          lateSamples.lazySet(lateSamples.get() + late);
+        }
+        if (dropped > 0){
+          droppedSamples.lazySet(droppedSamples.get() + dropped);
+        }
+      }
+      //lost ranges become gap frames
+      ring.discardPending();
+    }
+
+    private void prepare(int[] layoutChannels, int sampleRate){
+      long minCapacity = (merger.latencyNanos + INPUT_SLACK_NANOS) * sampleRate / 1_000_000_000L * 2;
+      int slotCount = 64;
+      while (slotCount < minCapacity){
+        slotCount <<= 1;
+      }
+      timestamps = new long[slotCount];
+      values = new float[layoutChannels.length][slotCount];
+      slotMask = slotCount - 1;
+      halfWindowNanos = (long) (Math.max(merger.framePeriodNanos, 1e9 / sampleRate) / 2);
+      //publishes the buffers
+      channels = layoutChannels.clone();
+    }
+  }
+
+  final double framePeriodNanos;
+  final long latencyNanos;
+  final int maxFrameCount;
+  final Input[] inputs;
+  //time of the next frame to collect, frames before it are collected, written by the merge thread
+  private volatile long nextFrameNanos = Long.MIN_VALUE;
+  private long originNanos;
+  private long nextFrame = -1;
+  private long skippedFrames;
+  //result of the last collect, merge thread only
+  int frameCount;
+  long firstFrameNanos;
+  //channels of every input in the frames, empty before the input got samples
+  final int[][] frameChannels;
+  //float32 values[input][channel][frame], NaN for gaps
+  ByteBuffer frameValues;
+
+  StreamMerger(String[] deviceMacs, int[] dataTypes, double frameRate, long latencyNanos){
+    this.framePeriodNanos = 1e9 / frameRate;
+    this.latencyNanos = latencyNanos;
+    this.maxFrameCount = (int) Math.max(1, MAX_COLLECT_NANOS / framePeriodNanos);
+    inputs = new Input[deviceMacs.length];
+    frameChannels = new int[deviceMacs.length][];
+    for (int index = 0;index < inputs.length;++index){
+      inputs[index] = new Input(this, deviceMacs[index], dataTypes[index]);
+      frameChannels[index] = new int[0];
+    }
+  }
+
+  public long skippedFrames(){
+    return skippedFrames;
+  }
+
+  //called on the merge thread, builds the frames due at nowNanos, returns frameCount
+  public int collect(long nowNanos){
+    long horizonNanos = nowNanos - latencyNanos;
+    if (nextFrame < 0){
+      originNanos = horizonNanos;
+      nextFrame = 0;
+    }
+    long dueFrame = (long) Math.floor((horizonNanos - originNanos) / framePeriodNanos);
+    if (dueFrame < nextFrame){
+      frameCount = 0;
+      return 0;
+    }
+    long count = dueFrame - nextFrame + 1;
+    if (count > maxFrameCount){
+      skippedFrames += count - maxFrameCount;
+      nextFrame += count - maxFrameCount;
+      count = maxFrameCount;
+    }
+    frameCount = (int) count;
+    firstFrameNanos = frameNanos(nextFrame);
+
+    int columnCount = 0;
+    for (int index = 0;index < inputs.length;++index){
+      int[] channels = inputs[index].channels;
+      frameChannels[index] = channels != null ? channels : frameChannels[index];
+      columnCount += frameChannels[index].length;
+    }
+    int size = columnCount * frameCount * 4;
+    if (frameValues == null || frameValues.capacity() < size){
+      frameValues = ByteBuffer.allocate(Math.max(size, 4096));
+      frameValues.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    frameValues.clear();
+    int columnOffset = 0;
+    for (int index = 0;index < inputs.length;++index){
+      collectInput(inputs[index], frameChannels[index].length, columnOffset);
+      columnOffset += frameChannels[index].length * frameCount * 4;
+    }
+    frameValues.position(size);
+    nextFrame += frameCount;
+    //a sample before the window of the next frame can't be used anymore
+    nextFrameNanos = frameNanos(nextFrame);
+    return frameCount;
+  }
+
+  private void collectInput(Input input, int channelCount, int offset){
+    int readPosition = input.readPosition;
+    int writePosition = channelCount > 0 ? input.writePosition : readPosition;
+    long gaps = 0;
+    for (int frame = 0;frame < frameCount;++frame){
+      long frameNanos = frameNanos(nextFrame + frame);
+      long lowerNanos = frameNanos - input.halfWindowNanos;
+      long upperNanos = frameNanos + input.halfWindowNanos;
+      while (readPosition != writePosition && input.timestamps[readPosition & input.slotMask] < lowerNanos){
+        ++readPosition;
+      }
+      boolean found = readPosition != writePosition && input.timestamps[readPosition & input.slotMask] < upperNanos;
+      if (!found){
+        ++gaps;
+      }else{
+        //a later sample in the window may be nearer, earlier ones can't be used by the next frame either
+        while (readPosition + 1 != writePosition){
+          long nextNanos = input.timestamps[(readPosition + 1) & input.slotMask];
+          if (nextNanos >= upperNanos
+            || Math.abs(nextNanos - frameNanos) >= Math.abs(input.timestamps[readPosition & input.slotMask] - frameNanos)){
+            break;
+          }
+          ++readPosition;
+        }
+      }
+      for (int channel = 0;channel < channelCount;++channel){
+        float value = found ? input.values[channel][readPosition & input.slotMask] : Float.NaN;
+        frameValues.putFloat(offset + (channel * frameCount + frame) * 4, value);
+      }
+    }
+    //release slots to the producer
+    input.readPosition = readPosition;
+    input.gapFrames.lazySet(input.gapFrames.get() + gaps);
+  }
+
+  private long frameNanos(long frame){
+    return originNanos + Math.round(frame * framePeriodNanos);
+  }
+}
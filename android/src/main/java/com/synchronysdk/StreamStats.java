@@ -0,0 +1,42 @@
+package com.synchronysdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//counters of one data type of one device, read by any thread without locking
+//every counter has a single writer thread, so it is updated with lazySet instead of a CAS
+class StreamStats {
+  //decoder thread
+  static final int PACKETS = 0;
+  static final int DUPLICATE_PACKETS = 1;
+  static final int LOST_PACKETS = 2;
+  //shorter than a package, dropped without changing the package index
+  static final int MALFORMED_PACKETS = 3;
+  static final int DECODED_SAMPLES = 4;
+  static final int LOST_SAMPLES = 5;
+  static final int DECODE_NANOS = 6;
+  //emission worker
+  static final int EMITS = 7;
+  static final int EMITTED_SAMPLES = 8;
+  static final int EMIT_NANOS = 9;
+  //from arrival of the oldest sample of an emit to the end of its sendEvent
+  static final int LATENCY_NANOS = 10;
+  static final int MAX_LATENCY_NANOS = 11;
+  static final int COUNTER_COUNT = 12;
+
+  private final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+
+  //only called by the writer thread of counter
+  public void add(int counter, long delta){
+    counters.lazySet(counter, counters.get(counter) + delta);
+  }
+
+  public void max(int counter, long value){
+    if (value > counters.get(counter)){
+      counters.lazySet(counter, value);
+    }
+  }
+
+  public long get(int counter){
+    return counters.get(counter);
+  }
+}
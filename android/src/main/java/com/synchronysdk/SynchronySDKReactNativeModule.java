@@ -2,6 +2,8 @@ package com.synchronysdk;
 
 import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothDevice;
+import android.os.SystemClock;
+import android.util.Base64;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -13,10 +15,10 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.sensor.CommandResponseCallback;
@@ -25,94 +27,108 @@ import com.sensor.ScanCallback;
 import com.sensor.SensorProfile;
 import com.sensor.SensorScaner;
 
-import java.util.HashMap;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.Vector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDKReactNativeSpec {
   public static final String NAME = "SynchronySDKReactNative";
   public static final String TAG = "SynchronySDKReactNative";
-  static final int DATA_TYPE_EEG = 0;
-  static final int DATA_TYPE_ECG = 1;
-  static final int DATA_TYPE_ACC = 2;
-  static final int DATA_TYPE_GYRO = 3;
-  static final int DATA_TYPE_COUNT = 4;
   static final int TIMEOUT = 50000;
+  static final int BACKPRESSURE_REPORT_INTERVAL = 1000;
+  static final int MAX_EMIT_SAMPLES = 1024;
+  static final int MAX_READ_WINDOW_RETRY = 3;
+  static final int MERGE_INTERVAL_MS = 40;
+  static final int SCAN_DELTA_INTERVAL_MS = 1000;
+  //scan cycles a device may be missing before it is removed
+  static final int SCAN_EXPIRE_PERIODS = 2;
 
   private DataNotificationCallback dataCallback;
 
-  static class SensorData {
-    public String deviceMac;
-    public String deviceName;
-    public int dataType;
-    public int lastPackageCounter;
-    public int lastPackageIndex;
-    public int resolutionBits;
-    public int sampleRate;
-    public int channelCount;
-    public long channelMask;
-    public int packageSampleCount;
-    public double K;
-    static class Sample {
-      public int timeStampInMs;
-      public int channelIndex;
-      public int sampleIndex;
-      public int rawData;
-      public float data;
-      public float impedance;
-      public float saturation;
-      public boolean isLost;
-    }
-    public volatile Vector<Vector<Sample>> channelSamples;
-    public SensorData(){
-
-    }
-
-    public void clear(){
-      lastPackageCounter = 0;
-      lastPackageIndex = 0;
-      channelSamples = null;
-    }
-  }
-
-  static class SensorDataContext {
+  static class SensorDataContext extends SampleDecoder {
     String deviceMac;
-    SensorData sensorData[];
-    Vector<Float> impedanceData;
-    Vector<Float> saturationData;
     int notifyDataFlag;
+    volatile boolean packedTransport;
+    //all data types of an emit in one GOT_COMBINED_DATA event
+    volatile boolean combinedTransport;
+    ScheduledFuture<?> batchFlushFuture;
+    ScheduledFuture<?> statsFuture;
+    EmissionScheduler.Task emitTask;
+    PacketPipeline pipeline;
+    //set for virtual devices replaying a recording or simulating a sensor
+    volatile SensorSource source;
+    //per data type index, null sends the full rate, only used by the emission worker
+    final SampleDecimator[] decimators = new SampleDecimator[DATA_TYPE_COUNT];
+    //per data type index, only used by the emission worker
+    final DataSubscription[] subscriptions = new DataSubscription[DATA_TYPE_COUNT];
+    //per data type index, set while the stream is merged, samples go to the merger instead of JS
+    final StreamMerger.Input[] mergeInputs = new StreamMerger.Input[DATA_TYPE_COUNT];
+    //per data type index, sections of the combined event being built, only used by the emission worker
+    final SensorData.SampleRing[] combinedRings = new SensorData.SampleRing[DATA_TYPE_COUNT];
+    final int[] combinedReadPositions = new int[DATA_TYPE_COUNT];
+    final int[] combinedSampleCounts = new int[DATA_TYPE_COUNT];
+    ByteBuffer combinedPackBuffer;
+    //time between packets at onData, written by the decoder thread from the pipeline stamps
+    final LatencyHistogram arrivalIntervals = new LatencyHistogram();
+    //from onData to the end of decoding, decoder thread
+    final LatencyHistogram decodeLatency = new LatencyHistogram();
+    //from onData of the oldest sample to the end of sendEvent, emission worker
+    final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    long lastArrivalNanos;
+    long reportedDroppedPackets;
+    long reportedDroppedSamples;
+    long lastBackpressureReportTime;
 
     public SensorDataContext(String _deviceMac){
       deviceMac = _deviceMac;
-      sensorData = new SensorData[DATA_TYPE_COUNT];
-      impedanceData = new Vector<Float>();
-      saturationData = new Vector<Float>();
+      for (int index = 0;index < DATA_TYPE_COUNT;++index){
+        subscriptions[index] = DataSubscription.all();
+      }
       notifyDataFlag = SensorProfile.DataNotifFlags.DNF_IMPEDANCE | SensorProfile.DataNotifFlags.DNF_ACCELERATE;
     }
+    @Override
     public void clear(){
-      for (int index = 0;index < DATA_TYPE_COUNT;++index){
-        if (sensorData[index] != null){
-          sensorData[index].clear();
-        }
-      }
-      impedanceData.clear();
-      saturationData.clear();
+      super.clear();
       notifyDataFlag = SensorProfile.DataNotifFlags.DNF_IMPEDANCE | SensorProfile.DataNotifFlags.DNF_ACCELERATE;
     }
+
+    public boolean isBatching(){
+      return batchLatencyMs > 0 || batchMaxSamples > 0;
+    }
+
+    public synchronized void cancelBatchFlush(){
+      if (batchFlushFuture != null){
+        batchFlushFuture.cancel(false);
+        batchFlushFuture = null;
+      }
+    }
+
+    public synchronized void cancelStatsReport(){
+      if (statsFuture != null){
+        statsFuture.cancel(false);
+        statsFuture = null;
+      }
+    }
   }
-  private HashMap<String, SensorDataContext> sensorDataContextMap;
+  private ConcurrentHashMap<String, SensorDataContext> sensorDataContextMap;
+  private ScheduledExecutorService dataScheduler;
+  //scan restarts and device deltas, apart from the data path
+  private ScheduledExecutorService scanScheduler;
+  private EmissionScheduler emissionScheduler;
+  private StreamMerger merger;
+  private ScheduledFuture<?> mergeFuture;
   private SensorScaner sensorScaner;
   private int listenerCount = 0;
-  private boolean isScaning = false;
-  private Timer scanTimer;
-
-  private class BLEScanResult{
-    String name;
-    String mac;
-    int rssi;
-  }
-  private Vector<BLEScanResult> scanResult = new Vector<>();
+  private volatile boolean isScaning = false;
+  private final ScanRegistry scanRegistry = new ScanRegistry();
+  private ScheduledFuture<?> scanRestartFuture;
+  private ScheduledFuture<?> scanDeltaFuture;
   @ReactMethod
   public void addListener(String eventName) {
     if (listenerCount == 0) {
@@ -137,134 +153,220 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
     if (listenerCount > 0)
       reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, params);
   }
-  private static float getFloat(byte[] b, int offset) {
-    int accum = 0;
-    accum = accum | (b[offset + 0] & 0xff) << 0;
-    accum = accum | (b[offset + 1] & 0xff) << 8;
-    accum = accum | (b[offset + 2] & 0xff) << 16;
-    accum = accum | (b[offset + 3] & 0xff) << 24;
-    return Float.intBitsToFloat(accum);
+  private void onSamplesRead(SensorDataContext ctx, SensorData sensorData){
+    if (!ctx.isBatching()){
+      emissionScheduler.schedule(ctx.emitTask);
+      return;
+    }
+    int maxSamples = ctx.batchMaxSamples;
+    if (maxSamples > 0 && sensorData.pendingSampleCount() >= maxSamples){
+      emissionScheduler.schedule(ctx.emitTask);
+    }
   }
-  private boolean checkReadSamples(byte[] data, SensorDataContext ctx, SensorData sensorData, int dataOffset){
-    int offset = 1;
-    try{
-      int packageIndex = ((data[offset + 1] & 0xff) << 8 | (data[offset] & 0xff));
-//                            Log.d(TAG, "package index: " + packageIndex);
-      offset += 2;
-      int newPackageIndex = packageIndex;
-      int lastPackageIndex = sensorData.lastPackageIndex;
-
-      if (packageIndex < lastPackageIndex){
-        packageIndex += 65536;// package index is U16
-      }else if (packageIndex == lastPackageIndex){
-        //repeated package index
-        return false;
-      }
-      int deltaPackageIndex = packageIndex - lastPackageIndex;
-      if (deltaPackageIndex > 1){
-        int lostSampleCount = sensorData.packageSampleCount * (deltaPackageIndex - 1);
-        //add missing samples
-        readSamples(data, ctx, sensorData, 0, lostSampleCount);
-        if (newPackageIndex == 0){
-          sensorData.lastPackageIndex = 65535;
-        }else{
-          sensorData.lastPackageIndex = newPackageIndex - 1;
+
+  //runs on an emission worker, never concurrently for the same ctx
+  private boolean emitSensorData(SensorDataContext ctx){
+    boolean hasMore = false;
+    boolean combined = ctx.combinedTransport;
+    if (combined){
+      sendCombinedSensorData(getReactApplicationContext(), ctx, MAX_EMIT_SAMPLES);
+    }
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      SensorData sensorData = ctx.sensorData[index];
+      if (sensorData != null){
+        if (!combined){
+          sendSensorData(getReactApplicationContext(), ctx, sensorData, MAX_EMIT_SAMPLES);
         }
-        sensorData.lastPackageCounter += (deltaPackageIndex - 1);
+        hasMore |= sensorData.pendingSampleCount() > 0;
+      }
+      FeatureExtractor featureExtractor = ctx.featureExtractors[index];
+      if (sensorData != null && featureExtractor != null){
+        sendFeatures(getReactApplicationContext(), ctx, sensorData, featureExtractor);
       }
-      readSamples(data, ctx, sensorData, dataOffset, 0);
-      sensorData.lastPackageIndex = newPackageIndex;
-      sensorData.lastPackageCounter++;
-    }catch (Exception e){
-      Log.d(TAG, "error in process data" + e.getLocalizedMessage());
-      return false;
     }
-    return true;
+    return hasMore;
+  }
+
+  private void sendSensorData(ReactContext reactContext, SensorDataContext ctx, SensorData sensorData, int maxSampleCount){
+    SensorData.SampleRing ring = sensorData.ring;
+    if (ring == null || consumeUnsent(ctx, sensorData, ring)){
+      return;
+    }
+    int index = SampleDecoder.dataTypeIndex(sensorData.dataType);
+    long startNanos = System.nanoTime();
+    SensorData.SampleRing sourceRing = ring;
+    int readPosition = ring.readPosition;
+    SampleDecimator decimator = ctx.decimators[index];
+    if (decimator != null){
+      ring = decimator.decimate(sensorData, ring, maxSampleCount);
+      maxSampleCount = ring.pendingSampleCount();
+    }
+    DataSubscription subscription = ctx.subscriptions[index];
+    if (ctx.packedTransport){
+      sendPackedSensorData(reactContext, ctx, sensorData, ring, maxSampleCount, subscription);
+    }else{
+      sendSampleMaps(reactContext, ctx, sensorData, ring, maxSampleCount, subscription);
+    }
+    recordEmit(ctx, index, sourceRing, readPosition, startNanos, System.nanoTime());
   }
-  private void readSamples(byte[] data, SensorDataContext ctx,SensorData sensorData, int offset, int lostSampleCount){
-    int sampleCount = sensorData.packageSampleCount;
-    int sampleInterval = 1000 / sensorData.sampleRate; // sample rate should be less than 1000
-    if (lostSampleCount > 0)
-      sampleCount = lostSampleCount;
 
-    double K = sensorData.K;
-    int lastSampleIndex = sensorData.lastPackageCounter * sensorData.packageSampleCount;
+  //samples of streams with suppressed raw data or in a merge don't go to JS, returns true if they were consumed
+  private static boolean consumeUnsent(SensorDataContext ctx, SensorData sensorData, SensorData.SampleRing ring){
+    int index = SampleDecoder.dataTypeIndex(sensorData.dataType);
+    FeatureExtractor featureExtractor = ctx.featureExtractors[index];
+    if (featureExtractor != null && featureExtractor.suppressRaw){
+      //release slots to decoder thread
+      ring.discardPending();
+      return true;
+    }
+    StreamMerger.Input mergeInput = ctx.mergeInputs[index];
+    if (mergeInput != null){
+      //frames are sent by the merge thread
+      mergeInput.offer(sensorData, ring);
+      return true;
+    }
+    return false;
+  }
 
-    Vector<Float> _impedanceData = ctx.impedanceData;
-    Vector<Float> _saturationData = ctx.saturationData;
+  //samples of sourceRing from readPosition were sent between startNanos and endNanos
+  private static void recordEmit(SensorDataContext ctx, int index, SensorData.SampleRing sourceRing, int readPosition,
+                                 long startNanos, long endNanos){
+    int sampleCount = sourceRing.readPosition - readPosition;
+    if (sampleCount <= 0){
+      return;
+    }
+    //the oldest sample waited longest
+    long latencyNanos = endNanos - sourceRing.arrivalNanos[readPosition & sourceRing.slotMask];
+    StreamStats stats = ctx.stats[index];
+    stats.add(StreamStats.EMITS, 1);
+    stats.add(StreamStats.EMITTED_SAMPLES, sampleCount);
+    stats.add(StreamStats.EMIT_NANOS, endNanos - startNanos);
+    stats.add(StreamStats.LATENCY_NANOS, latencyNanos);
+    stats.max(StreamStats.MAX_LATENCY_NANOS, latencyNanos);
+    ctx.deliveryLatency.record(latencyNanos);
+  }
 
-    Vector<Vector<SensorData.Sample>> channelSamples ;
-    if (sensorData.channelSamples == null){
-      channelSamples = new Vector<>();
-      for (int channelIndex = 0; channelIndex < sensorData.channelCount; ++ channelIndex){
-        channelSamples.add(new Vector<>());
+  //pending samples of all data types in one GOT_COMBINED_DATA event instead of an event per data type,
+  //every stream is a section of the payload, packed like GOT_PACKED_DATA and padded to 4 bytes
+  private void sendCombinedSensorData(ReactContext reactContext, SensorDataContext ctx, int maxSampleCount){
+    long startNanos = System.nanoTime();
+    SensorData.SampleRing[] rings = ctx.combinedRings;
+    int sectionCount = 0;
+    int size = 0;
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      rings[index] = null;
+      SensorData sensorData = ctx.sensorData[index];
+      SensorData.SampleRing ring = sensorData != null ? sensorData.ring : null;
+      if (ring == null || consumeUnsent(ctx, sensorData, ring)){
+        continue;
       }
-    }else{
-      channelSamples = (Vector<Vector<SensorData.Sample>>)sensorData.channelSamples.clone();
+      ctx.combinedReadPositions[index] = ring.readPosition;
+      int sampleLimit = maxSampleCount;
+      SampleDecimator decimator = ctx.decimators[index];
+      if (decimator != null){
+        ring = decimator.decimate(sensorData, ring, sampleLimit);
+        sampleLimit = ring.pendingSampleCount();
+      }
+      int sampleCount = Math.min(ring.writePosition - ring.readPosition, sampleLimit);
+      if (sampleCount <= 0 && ring.pendingGapCount(ring.readPosition) == 0){
+        continue;
+      }
+      int[] selected = ctx.subscriptions[index].select(sensorData.channelLayout());
+      int fields = packedFields(ctx.subscriptions[index], ring.channelFiltered);
+      rings[index] = ring;
+      ctx.combinedSampleCounts[index] = sampleCount;
+      ++sectionCount;
+      size += alignedSize(packedSize(selected.length, sampleCount, fields));
     }
+    if (sectionCount == 0){
+      return;
+    }
+    ByteBuffer buffer = ctx.combinedPackBuffer = SensorData.preparePackBuffer(ctx.combinedPackBuffer, size);
+    WritableArray sectionsResult = Arguments.createArray();
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      SensorData.SampleRing ring = rings[index];
+      if (ring == null){
+        continue;
+      }
+      SensorData sensorData = ctx.sensorData[index];
+      SensorData.ChannelLayout layout = sensorData.channelLayout();
+      DataSubscription subscription = ctx.subscriptions[index];
+      int[] selected = subscription.select(layout);
+      float[][] filteredColumns = ring.channelFiltered;
+      int fields = packedFields(subscription, filteredColumns);
+      int readPosition = ring.readPosition;
+      int sampleCount = ctx.combinedSampleCounts[index];
+      int offset = buffer.position();
+      packSamples(layout, selected, fields, ring, readPosition, sampleCount, filteredColumns, buffer);
+      buffer.position(offset + alignedSize(packedSize(selected.length, sampleCount, fields)));
 
+      WritableMap sectionResult = Arguments.createMap();
+      if (sampleCount > 0){
+        putTimestamp(sectionResult, sensorData, ring.sampleIndices[readPosition & ring.slotMask]);
+      }
+      sectionResult.putInt("dataType", sensorData.dataType);
+      sectionResult.putInt("sampleRate", sensorData.sampleRate);
+      sectionResult.putInt("channelCount", sensorData.channelCount);
+      sectionResult.putInt("packageSampleCount", sensorData.packageSampleCount);
+      sectionResult.putInt("sampleCount", sampleCount);
+      sectionResult.putArray("channels", channelIndexes(layout, selected));
+      sectionResult.putInt("fields", fields);
+      sectionResult.putArray("lostRanges", takeLostRanges(ring, readPosition + sampleCount));
+      sectionResult.putInt("offset", offset);
+      //release slots to decoder thread
+      ring.readPosition = readPosition + sampleCount;
+      sectionsResult.pushMap(sectionResult);
+    }
 
-    for (int sampleIndex = 0;sampleIndex < sampleCount; ++sampleIndex, ++lastSampleIndex){
-      for (int channelIndex = 0, impedanceChannelIndex = 0; channelIndex < sensorData.channelCount; ++channelIndex){
-        if ((sensorData.channelMask & (1 << channelIndex)) > 0){
-          Vector<SensorData.Sample> samples = channelSamples.elementAt(channelIndex);
-          float impedance = 0;
-          float saturation = 0;
-          if (sensorData.dataType == SensorProfile.NotifDataType.NTF_ECG){
-            impedanceChannelIndex = ctx.sensorData[DATA_TYPE_EEG].channelCount;
-          }
-          if ((impedanceChannelIndex >= 0) && (impedanceChannelIndex < _impedanceData.size())){
-            impedance = _impedanceData.get(impedanceChannelIndex);
-            saturation = _saturationData.get(impedanceChannelIndex);
-          }
-          ++impedanceChannelIndex;
-
-          SensorData.Sample dataItem = new SensorData.Sample();
-          dataItem.channelIndex = channelIndex;
-          dataItem.sampleIndex = lastSampleIndex;
-          dataItem.timeStampInMs = lastSampleIndex * sampleInterval;
-          if (lostSampleCount > 0){
-            //add missing samples with 0
-            dataItem.rawData = 0;
-            dataItem.data = 0;
-            dataItem.impedance = impedance;
-            dataItem.saturation = saturation;
-            dataItem.isLost = true;
-          }else{
-            int rawData = 0;
-            if (sensorData.resolutionBits == 8){
-              rawData = (0xff & data[offset]) - 128;
-              offset += 1;
-            }else if (sensorData.resolutionBits == 16){
-              //it's native short LSB
-              rawData = (short)((0xff & data[offset + 1]) << 8 | (0xff & data[offset]));
-              offset += 2;
-            }else if (sensorData.resolutionBits == 24) {
-              //it's MSB
-              rawData = ((0xff & data[offset]) << 16 | (0xff & data[offset + 1]) << 8 | (0xff & data[offset + 2])) - 8388608;
-              offset += 3;
-            }
-            float converted = (float)(rawData * K);
-            dataItem.rawData = rawData;
-            dataItem.data = converted;
-            dataItem.impedance = impedance;
-            dataItem.saturation = saturation;
-            dataItem.isLost = false;
-          }
-          samples.add(dataItem);
-        }
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putArray("sections", sectionsResult);
+    result.putString("payload", Base64.encodeToString(buffer.array(), 0, size, Base64.NO_WRAP));
+    sendEvent(reactContext, "GOT_COMBINED_DATA", result);
+    //every stream of the event gets its full emit time
+    long endNanos = System.nanoTime();
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      if (rings[index] != null){
+        recordEmit(ctx, index, ctx.sensorData[index].ring, ctx.combinedReadPositions[index], startNanos, endNanos);
+        rings[index] = null;
       }
     }
-    sensorData.channelSamples = channelSamples;
   }
 
-  private void sendSensorData(ReactContext reactContext, SensorDataContext ctx, SensorData sensorData){
-    Vector<Vector<SensorData.Sample>> channelSamples = sensorData.channelSamples;
-    sensorData.channelSamples = null;
+  private void sendFeatures(ReactContext reactContext, SensorDataContext ctx, SensorData sensorData, FeatureExtractor featureExtractor){
+    int bandCount = featureExtractor.bandCount();
+    FeatureExtractor.Frame frame;
+    while ((frame = featureExtractor.frames.poll()) != null){
+      WritableMap result = Arguments.createMap();
+      result.putString("deviceMac", ctx.deviceMac);
+      result.putInt("dataType", sensorData.dataType);
+      result.putInt("sampleRate", sensorData.sampleRate);
+      result.putInt("sampleIndex", frame.sampleIndex);
+      result.putInt("lostSamples", frame.lostSamples);
+      WritableArray channelsResult = Arguments.createArray();
+      WritableArray bandPowerResult = Arguments.createArray();
+      for (int index = 0;index < frame.channels.length;++index){
+        channelsResult.pushInt(frame.channels[index]);
+        WritableArray channelResult = Arguments.createArray();
+        for (int band = 0;band < bandCount;++band){
+          channelResult.pushDouble(frame.bandPower[index * bandCount + band]);
+        }
+        bandPowerResult.pushArray(channelResult);
+      }
+      result.putArray("channels", channelsResult);
+      result.putArray("bandPower", bandPowerResult);
+      sendEvent(reactContext, "GOT_FEATURES", result);
+    }
+  }
 
-    if (channelSamples == null){
+  private void sendSampleMaps(ReactContext reactContext, SensorDataContext ctx, SensorData sensorData, SensorData.SampleRing ring,
+                              int maxSampleCount, DataSubscription subscription){
+    int readPosition = ring.readPosition;
+    int sampleCount = Math.min(ring.writePosition - readPosition, maxSampleCount);
+    if (sampleCount <= 0 && ring.pendingGapCount(readPosition) == 0){
       return;
     }
+    int slotMask = ring.slotMask;
 
     WritableMap result = Arguments.createMap();
     result.putString("deviceMac", ctx.deviceMac);
@@ -277,34 +379,310 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
 //    result.putDouble("K", sensorData.K);
 
     WritableArray channelsResult = Arguments.createArray();
+    SensorData.ChannelLayout layout = sensorData.channelLayout();
+    int[] selected = subscription.select(layout);
+    float[][] filteredColumns = ring.channelFiltered;
+    int fields = packedFields(subscription, filteredColumns);
 
-    for (int channelIndex = 0; channelIndex < sensorData.channelCount; ++channelIndex){
-      Vector<SensorData.Sample> samples = channelSamples.get(channelIndex);
+    for (int channelIndex = 0, index = 0; channelIndex < sensorData.channelCount; ++channelIndex){
       WritableArray samplesResult = Arguments.createArray();
 
-      for (int sampleIndex = 0;sampleIndex < samples.size();++sampleIndex){
-        SensorData.Sample sample = samples.get(sampleIndex);
-        WritableMap sampleResult = Arguments.createMap();
-//        sampleResult.putInt("rawData", sample.rawData);
-        sampleResult.putInt("sampleIndex", sample.sampleIndex);
-//        sampleResult.putInt("channelIndex", sample.channelIndex);
-//        sampleResult.putInt("timeStampInMs", sample.timeStampInMs);
-        sampleResult.putDouble("data", sample.data);
-        sampleResult.putDouble("impedance", sample.impedance);
-        sampleResult.putDouble("saturation", sample.saturation);
-        sampleResult.putBoolean("isLost", sample.isLost);
-        samplesResult.pushMap(sampleResult);
+      if (index < selected.length && layout.channels[selected[index]] == channelIndex){
+        int impedanceSlot = layout.impedanceSlots[selected[index++]];
+        float[] data = ring.channelData[channelIndex];
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          int slot = (readPosition + sampleIndex) & slotMask;
+          ImpedanceSnapshot snapshot = ring.impedanceSnapshots[slot];
+          WritableMap sampleResult = Arguments.createMap();
+          sampleResult.putInt("sampleIndex", ring.sampleIndices[slot]);
+          if ((fields & DataSubscription.FIELD_DATA) != 0){
+            sampleResult.putDouble("data", data[slot]);
+          }
+          if ((fields & DataSubscription.FIELD_IMPEDANCE) != 0){
+            sampleResult.putDouble("impedance", snapshot.impedance(impedanceSlot));
+          }
+          if ((fields & DataSubscription.FIELD_SATURATION) != 0){
+            sampleResult.putDouble("saturation", snapshot.saturation(impedanceSlot));
+          }
+          if ((fields & DataSubscription.FIELD_FILTERED) != 0){
+            sampleResult.putDouble("filtered", filteredColumns[channelIndex][slot]);
+          }
+          if ((fields & DataSubscription.FIELD_IS_LOST) != 0){
+            sampleResult.putBoolean("isLost", ring.isLost(slot));
+          }
+          samplesResult.pushMap(sampleResult);
+        }
       }
       channelsResult.pushArray(samplesResult);
     }
 
+    if (sampleCount > 0){
+      putTimestamp(result, sensorData, ring.sampleIndices[readPosition & slotMask]);
+    }
+    //release slots to decoder thread
+    ring.readPosition = readPosition + sampleCount;
+
     result.putArray("channelSamples", channelsResult);
+    result.putArray("channels", channelIndexes(layout, selected));
+    result.putArray("lostRanges", takeLostRanges(ring, readPosition + sampleCount));
     sendEvent(reactContext, "GOT_DATA", result);
   }
 
+  private void sendPackedSensorData(ReactContext reactContext, SensorDataContext ctx, SensorData sensorData, SensorData.SampleRing ring,
+                                    int maxSampleCount, DataSubscription subscription){
+    int readPosition = ring.readPosition;
+    int sampleCount = Math.min(ring.writePosition - readPosition, maxSampleCount);
+    if (sampleCount <= 0 && ring.pendingGapCount(readPosition) == 0){
+      return;
+    }
+    SensorData.ChannelLayout layout = sensorData.channelLayout();
+    int[] selected = subscription.select(layout);
+    float[][] filteredColumns = ring.channelFiltered;
+    int fields = packedFields(subscription, filteredColumns);
+    int size = packedSize(selected.length, sampleCount, fields);
+    ByteBuffer buffer = sensorData.preparePackBuffer(size);
+    packSamples(layout, selected, fields, ring, readPosition, sampleCount, filteredColumns, buffer);
+    WritableArray lostRanges = takeLostRanges(ring, readPosition + sampleCount);
+    int firstSampleIndex = ring.sampleIndices[readPosition & ring.slotMask];
+    //release slots to decoder thread
+    ring.readPosition = readPosition + sampleCount;
+
+    WritableMap result = Arguments.createMap();
+    if (sampleCount > 0){
+      putTimestamp(result, sensorData, firstSampleIndex);
+    }
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putInt("dataType", sensorData.dataType);
+    result.putInt("sampleRate", sensorData.sampleRate);
+    result.putInt("channelCount", sensorData.channelCount);
+    result.putInt("packageSampleCount", sensorData.packageSampleCount);
+    result.putInt("sampleCount", sampleCount);
+    result.putArray("channels", channelIndexes(layout, selected));
+    result.putInt("fields", fields);
+    result.putArray("lostRanges", lostRanges);
+    result.putString("payload", Base64.encodeToString(buffer.array(), 0, size, Base64.NO_WRAP));
+    sendEvent(reactContext, "GOT_PACKED_DATA", result);
+  }
+
+  //time of the first sample of a batch in SystemClock.elapsedRealtimeNanos() ms and the drift corrected sample period,
+  //sample n of the stream is at timestampMs + (n - timestampSampleIndex) * samplePeriodMs, lost and decimated samples included
+  private static void putTimestamp(WritableMap result, SensorData sensorData, int sampleIndex){
+    SampleClock.Estimate estimate = sensorData.clock.estimate;
+    if (estimate == null){
+      return;
+    }
+    result.putInt("timestampSampleIndex", sampleIndex);
+    result.putDouble("timestampMs", (estimate.timestampNanos(sampleIndex) + bootOffsetNanos()) / 1e6);
+    result.putDouble("samplePeriodMs", estimate.periodNanos / 1e6);
+  }
+
+  //clocks run on System.nanoTime(), which stops in deep sleep, JS gets SystemClock.elapsedRealtimeNanos()
+  private static long bootOffsetNanos(){
+    return SystemClock.elapsedRealtimeNanos() - System.nanoTime();
+  }
+
+  //lost samples before slot endPosition as [{sampleIndex, count}], JS fills them when asked to,
+  //decimated rings add step, the sample index step between the lost samples
+  private static WritableArray takeLostRanges(SensorData.SampleRing ring, int endPosition){
+    WritableArray lostRanges = Arguments.createArray();
+    int gapPosition = ring.gapReadPosition;
+    int gapEnd = gapPosition + ring.pendingGapCount(endPosition);
+    for (;gapPosition != gapEnd;++gapPosition){
+      int entry = gapPosition & (SensorData.SampleRing.GAP_CAPACITY - 1);
+      WritableMap range = Arguments.createMap();
+      range.putInt("sampleIndex", ring.gapFirstIndices[entry]);
+      range.putInt("count", ring.gapSampleCounts[entry]);
+      if (ring.gapSampleStep != 1){
+        range.putInt("step", ring.gapSampleStep);
+      }
+      lostRanges.pushMap(range);
+    }
+    //release gaps to decoder thread
+    ring.gapReadPosition = gapEnd;
+    return lostRanges;
+  }
+
+  //filtered is only sent when a filter writes next to data
+  private static int packedFields(DataSubscription subscription, float[][] filteredColumns){
+    int fields = subscription.fields;
+    if (filteredColumns == null){
+      fields &= ~DataSubscription.FIELD_FILTERED;
+    }
+    return fields;
+  }
+
+  private static int[] allChannels(SensorData.ChannelLayout layout){
+    int[] selected = new int[layout.channels.length];
+    for (int index = 0;index < selected.length;++index){
+      selected[index] = index;
+    }
+    return selected;
+  }
+
+  private static WritableArray channelIndexes(SensorData.ChannelLayout layout, int[] selected){
+    WritableArray channelsResult = Arguments.createArray();
+    for (int index : selected){
+      channelsResult.pushInt(layout.channels[index]);
+    }
+    return channelsResult;
+  }
+
+  //sections of a combined payload start at multiples of 4 so JS can view them as typed arrays
+  private static int alignedSize(int size){
+    return (size + 3) & ~3;
+  }
+
+  private static int packedSize(int channelCount, int sampleCount, int fields){
+    int columnCount = Integer.bitCount(fields & ~DataSubscription.FIELD_IS_LOST);
+    int lostBytes = (fields & DataSubscription.FIELD_IS_LOST) != 0 ? (sampleCount + 7) >>> 3 : 0;
+    return 4 * sampleCount * (1 + columnCount * channelCount) + lostBytes;
+  }
+
+  //payload layout (little endian): int32 sampleIndex[sampleCount], then for each field in fields:
+  //float32 data[channels][sampleCount], float32 impedance[channels][sampleCount], float32 saturation[channels][sampleCount],
+  //float32 filtered[channels][sampleCount], isLost bits[sampleCount]
+  //channels are layout.channels[selected]
+  private static void packSamples(SensorData.ChannelLayout layout, int[] selected, int fields, SensorData.SampleRing ring,
+                                  int position, int sampleCount, float[][] filteredColumns, ByteBuffer buffer){
+    int slotMask = ring.slotMask;
+    for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+      buffer.putInt(ring.sampleIndices[(position + sampleIndex) & slotMask]);
+    }
+    if ((fields & DataSubscription.FIELD_DATA) != 0){
+      for (int index : selected){
+        float[] values = ring.channelData[layout.channels[index]];
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          buffer.putFloat(values[(position + sampleIndex) & slotMask]);
+        }
+      }
+    }
+    if ((fields & DataSubscription.FIELD_IMPEDANCE) != 0){
+      for (int index : selected){
+        int impedanceSlot = layout.impedanceSlots[index];
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          buffer.putFloat(ring.impedanceSnapshots[(position + sampleIndex) & slotMask].impedance(impedanceSlot));
+        }
+      }
+    }
+    if ((fields & DataSubscription.FIELD_SATURATION) != 0){
+      for (int index : selected){
+        int impedanceSlot = layout.impedanceSlots[index];
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          buffer.putFloat(ring.impedanceSnapshots[(position + sampleIndex) & slotMask].saturation(impedanceSlot));
+        }
+      }
+    }
+    if ((fields & DataSubscription.FIELD_FILTERED) != 0){
+      for (int index : selected){
+        float[] values = filteredColumns[layout.channels[index]];
+        for (int sampleIndex = 0;sampleIndex < sampleCount;++sampleIndex){
+          buffer.putFloat(values[(position + sampleIndex) & slotMask]);
+        }
+      }
+    }
+    if ((fields & DataSubscription.FIELD_IS_LOST) == 0){
+      return;
+    }
+    int lostBytes = (sampleCount + 7) >>> 3;
+    for (int byteIndex = 0;byteIndex < lostBytes;++byteIndex){
+      int bits = 0;
+      for (int bitIndex = 0;bitIndex < 8;++bitIndex){
+        int sampleIndex = (byteIndex << 3) + bitIndex;
+        if (sampleIndex < sampleCount && ring.isLost((position + sampleIndex) & slotMask)){
+          bits |= (1 << bitIndex);
+        }
+      }
+      buffer.put((byte) bits);
+    }
+  }
+
+  //runs on the device decoder thread, data may be longer than length
+  private void processData(SensorDataContext ctx, byte[] data, int length){
+    long arrivalNanos = ctx.pipeline.handledArrivalNanos();
+    if (ctx.lastArrivalNanos != 0){
+      ctx.arrivalIntervals.record(arrivalNanos - ctx.lastArrivalNanos);
+    }
+    ctx.lastArrivalNanos = arrivalNanos;
+    try{
+      ctx.packetArrivalNanos = arrivalNanos;
+      ctx.processPacket(data, length);
+    }catch (Exception e){
+      Log.d(TAG, "error in process data" + e.getLocalizedMessage());
+    }
+    ctx.decodeLatency.record(System.nanoTime() - arrivalNanos);
+    checkBackpressure(ctx);
+    checkRecorder(ctx);
+  }
+
+  private void checkRecorder(SensorDataContext ctx){
+    SampleRecorder recorder = ctx.recorder;
+    if (recorder == null){
+      return;
+    }
+    String errorMsg = recorder.takeError();
+    if (errorMsg == null){
+      return;
+    }
+    Log.w(TAG, errorMsg);
+    //the recorder closed its file, startRecording works again without stopRecording
+    synchronized (ctx){
+      if (ctx.recorder == recorder){
+        ctx.recorder = null;
+      }
+    }
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putString("errMsg", errorMsg);
+    sendEvent(getReactApplicationContext(), "GOT_ERROR", result);
+  }
+
+  private void checkBackpressure(SensorDataContext ctx){
+    long droppedPackets = ctx.pipeline.droppedPackets();
+    long droppedSamples = 0;
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      if (ctx.sensorData[index] != null){
+        droppedSamples += ctx.sensorData[index].droppedSamples;
+      }
+    }
+    if (droppedPackets == ctx.reportedDroppedPackets && droppedSamples == ctx.reportedDroppedSamples){
+      return;
+    }
+    long now = System.currentTimeMillis();
+    if (now - ctx.lastBackpressureReportTime < BACKPRESSURE_REPORT_INTERVAL){
+      return;
+    }
+    String errorMsg = "data pipeline overflow, dropped packets: " + (droppedPackets - ctx.reportedDroppedPackets)
+      + ", total: " + droppedPackets + ", max depth: " + ctx.pipeline.maxDepth()
+      + ", dropped samples: " + (droppedSamples - ctx.reportedDroppedSamples);
+    ctx.reportedDroppedPackets = droppedPackets;
+    ctx.reportedDroppedSamples = droppedSamples;
+    ctx.lastBackpressureReportTime = now;
+    Log.w(TAG, errorMsg);
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putString("errMsg", errorMsg);
+    sendEvent(getReactApplicationContext(), "GOT_ERROR", result);
+  }
+
   private void initDataContext(String deviceMac){
     SensorDataContext ctx = new SensorDataContext(deviceMac);
-    sensorDataContextMap.put(deviceMac, ctx);
+    ctx.listener = sensorData -> onSamplesRead(ctx, sensorData);
+    ctx.emitTask = new EmissionScheduler.Task() {
+      @Override
+      boolean emit() {
+        return emitSensorData(ctx);
+      }
+    };
+    ctx.pipeline = new PacketPipeline(deviceMac, PacketPipeline.DEFAULT_CAPACITY, (data, length) -> processData(ctx, data, length));
+    SensorDataContext oldCtx = sensorDataContextMap.put(deviceMac, ctx);
+    if (oldCtx != null){
+      oldCtx.cancelBatchFlush();
+      oldCtx.cancelStatsReport();
+      oldCtx.pipeline.stop();
+      //keep recording and merging with the new context
+      ctx.recorder = oldCtx.recorder;
+      System.arraycopy(oldCtx.mergeInputs, 0, ctx.mergeInputs, 0, SampleDecoder.DATA_TYPE_COUNT);
+    }
     initACC_GYRO(ctx);
   }
 
@@ -318,7 +696,7 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
     data.packageSampleCount = 1;
     data.K = 1 / 8192.0;
     data.clear();
-    ctx.sensorData[DATA_TYPE_ACC] = data;
+    ctx.sensorData[SampleDecoder.DATA_TYPE_ACC] = data;
 
     SensorData data2 = new SensorData();
     data2.dataType = SensorProfile.NotifDataType.NTF_GYO_DATA;
@@ -329,13 +707,16 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
     data2.packageSampleCount = 1;
     data2.K = 1 / 16.4;
     data2.clear();
-    ctx.sensorData[DATA_TYPE_GYRO] = data2;
+    ctx.sensorData[SampleDecoder.DATA_TYPE_GYRO] = data2;
   }
 
   SynchronySDKReactNativeModule(ReactApplicationContext context) {
     super(context);
     sensorScaner = SensorScaner.getInstance();
-    sensorDataContextMap = new HashMap<>();
+    sensorDataContextMap = new ConcurrentHashMap<>();
+    dataScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "SynchronySDK-data"));
+    scanScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "SynchronySDK-scan"));
+    emissionScheduler = new EmissionScheduler("SynchronySDK-emit", Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
 
     dataCallback = new DataNotificationCallback() {
       @Override
@@ -344,43 +725,7 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
         String deviceMac = sensorProfile.getDevice().getAddress();
         SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
         if (ctx == null) return;
-
-        if (data[0] == SensorProfile.NotifDataType.NTF_IMPEDANCE){
-          int offset = 1;
-          int packageIndex = ((data[offset + 1] & 0xff) << 8 | (data[offset] & 0xff));
-          offset += 2;
-//        Log.d(TAG, "impedance package index: " + packageIndex);
-          Vector<Float> _impedanceData = new Vector<>();
-          Vector<Float> _saturationData = new Vector<>();
-
-          int dataCount = (data.length - 3) / 4 / 2;
-          for (int index = 0;index < dataCount;++index){
-            float impedance = getFloat(data, offset);
-            offset += 4;
-            _impedanceData.add(impedance);
-          }
-          for (int index = 0;index < dataCount;++index){
-            float impedance = getFloat(data, offset);
-            offset += 4;
-            _saturationData.add(impedance / 10); //firmware value range 0-1000
-          }
-          ctx.impedanceData = _impedanceData;
-          ctx.saturationData = _saturationData;
-        }else if (data[0] == SensorProfile.NotifDataType.NTF_EEG ||
-          data[0] == SensorProfile.NotifDataType.NTF_ECG ){
-          int dataType = data[0] - SensorProfile.NotifDataType.NTF_EEG;
-          SensorData sensorData = ctx.sensorData[dataType];
-          if (checkReadSamples(data, ctx, sensorData, 3))
-            sendSensorData(context, ctx, sensorData);
-        }else if (data[0] == SensorProfile.NotifDataType.NTF_ACC_DATA){
-          SensorData sensorDataACC = ctx.sensorData[DATA_TYPE_ACC];
-          if (checkReadSamples(data, ctx, sensorDataACC, 3))
-            sendSensorData(context, ctx, sensorDataACC);
-
-          SensorData sensorDataGYRO = ctx.sensorData[DATA_TYPE_GYRO];
-          if (checkReadSamples(data, ctx, sensorDataGYRO, 9))
-            sendSensorData(context, ctx, sensorDataGYRO);
-        }
+        ctx.pipeline.offer(data);
       }
     };
 
@@ -391,9 +736,26 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
   public String getName() {
     return NAME;
   }
+
+  @Override
+  public void invalidate() {
+    for (SensorDataContext ctx : sensorDataContextMap.values()){
+      if (ctx.source != null){
+        ctx.source.stop();
+      }
+      ctx.pipeline.stop();
+      closeRecorder(ctx);
+    }
+    dataScheduler.shutdownNow();
+    scanScheduler.shutdownNow();
+    emissionScheduler.shutdown();
+    super.invalidate();
+  }
+  //scans until stopScan, restarting the scan every period as android stops long scans,
+  //devices are sent as GOT_DEVICE_DELTA at most every SCAN_DELTA_INTERVAL_MS
   @ReactMethod
   @DoNotStrip
-  public void startScan(double _periodInMS, Promise promise){
+  public synchronized void startScan(double _periodInMS, Promise promise){
     if (isScaning){
       promise.reject("startScan", "please search after search return");
       return;
@@ -410,11 +772,7 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
       @SuppressLint("MissingPermission")
       @Override
       public void onScanResult(BluetoothDevice bluetoothDevice, int rssi) {
-        BLEScanResult result = new BLEScanResult();
-        result.mac = bluetoothDevice.getAddress();
-        result.name = bluetoothDevice.getName();
-        result.rssi = rssi;
-        scanResult.add(result);
+        scanRegistry.onAdvertisement(bluetoothDevice.getAddress(), bluetoothDevice.getName(), rssi, System.nanoTime());
       }
 
       @Override
@@ -423,50 +781,74 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
       }
     };
 
-    if (scanTimer != null){
-      scanTimer.cancel();
-    }
-    int finalTimeoutInMS = periodInMS;
-    scanTimer = new Timer();
-    scanTimer.scheduleAtFixedRate(new TimerTask() {
-      @Override
-      public void run() {
-        WritableArray result = new WritableNativeArray();
-        for (BLEScanResult deviceRet:
-             scanResult) {
-          WritableMap device = new WritableNativeMap();
-          device.putString("Name", deviceRet.name);
-          device.putString("Address", deviceRet.mac);
-          device.putInt("RSSI", deviceRet.rssi);
-          result.pushMap(device);
-        }
-        sendEvent(getReactApplicationContext(), "GOT_DEVICE_LIST", result);
-        if (isScaning){
-          scanResult.clear();
-          //keep search
-          boolean ret = sensorScaner.startScan(finalTimeoutInMS, scanCallback);
-          if (!ret){
-            stopScan(null);
-          }
-        }
-      }
-    },periodInMS + 100, periodInMS + 100);
-
-    scanResult.clear();
+    scanRegistry.clear();
     boolean ret = sensorScaner.startScan(periodInMS, scanCallback);
     isScaning = ret;
     if (!ret){
       stopScan(null);
+      promise.resolve(false);
+      return;
+    }
+    int finalTimeoutInMS = periodInMS;
+    long expireNanos = TimeUnit.MILLISECONDS.toNanos((long) (periodInMS + 100) * SCAN_EXPIRE_PERIODS);
+    try{
+      scanRestartFuture = scanScheduler.scheduleAtFixedRate(() -> {
+        //keep search
+        if (isScaning && !sensorScaner.startScan(finalTimeoutInMS, scanCallback)){
+          stopScan(null);
+        }
+      }, periodInMS + 100, periodInMS + 100, TimeUnit.MILLISECONDS);
+      scanDeltaFuture = scanScheduler.scheduleAtFixedRate(() -> sendDeviceDelta(expireNanos),
+        SCAN_DELTA_INTERVAL_MS, SCAN_DELTA_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }catch (RejectedExecutionException e){
+      //module was invalidated
+      stopScan(null);
+      promise.reject("startScan", "scan scheduler is shut down");
+      return;
+    }
+    promise.resolve(true);
+  }
+
+  //runs on the scan scheduler thread
+  private void sendDeviceDelta(long expireNanos){
+    ScanRegistry.Delta delta = scanRegistry.takeDelta(System.nanoTime(), expireNanos);
+    if (delta.isEmpty()){
+      return;
     }
-    promise.resolve(ret);
+    WritableMap result = Arguments.createMap();
+    result.putArray("added", scanEntries(delta.added));
+    result.putArray("updated", scanEntries(delta.updated));
+    WritableArray removedResult = Arguments.createArray();
+    for (String mac : delta.removed){
+      removedResult.pushString(mac);
+    }
+    result.putArray("removed", removedResult);
+    sendEvent(getReactApplicationContext(), "GOT_DEVICE_DELTA", result);
+  }
+
+  private static WritableArray scanEntries(List<ScanRegistry.Entry> entries){
+    WritableArray result = Arguments.createArray();
+    for (ScanRegistry.Entry entry : entries){
+      WritableMap device = Arguments.createMap();
+      device.putString("Name", entry.name);
+      device.putString("Address", entry.mac);
+      device.putInt("RSSI", entry.rssi);
+      result.pushMap(device);
+    }
+    return result;
   }
+
   @ReactMethod
   @DoNotStrip
   @Override
-  public void stopScan(Promise promise) {
-    if (scanTimer != null){
-      scanTimer.cancel();
-      scanTimer = null;
+  public synchronized void stopScan(Promise promise) {
+    if (scanRestartFuture != null){
+      scanRestartFuture.cancel(false);
+      scanRestartFuture = null;
+    }
+    if (scanDeltaFuture != null){
+      scanDeltaFuture.cancel(false);
+      scanDeltaFuture = null;
     }
     if (isScaning){
       isScaning = false;
@@ -516,6 +898,9 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
         if (ctx == null) return;
 
         if (newState == SensorProfile.BluetoothDeviceStateEx.Disconnected){
+          //the decoder thread must not be in readSamples while the rings are dropped
+          ctx.pipeline.stopAndJoin();
+          ctx.pipeline.discardPending();
           ctx.clear();
         }
         WritableMap result = Arguments.createMap();
@@ -563,17 +948,26 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
       promise.reject("startDataNotification","invalid device");
       return;
     }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx != null && ctx.source != null){
+      startSource(ctx);
+      promise.resolve(true);
+      return;
+    }
     SensorProfile sensor = sensorScaner.getSensor(deviceMac);
     if (sensor.getState() != SensorProfile.BluetoothDeviceStateEx.Ready){
       promise.resolve(false);
       return;
     }
-    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
     if (ctx == null) {
       promise.resolve(false);
       return;
     }
+    //the decoder thread must not be in readSamples while the rings are dropped
+    ctx.pipeline.stopAndJoin();
+    ctx.pipeline.discardPending();
     ctx.clear();
+    ctx.pipeline.start();
     boolean result = sensor.startDataNotification(dataCallback);
 
     promise.resolve(result);
@@ -586,8 +980,19 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
       promise.reject("stopDataNotification","invalid device");
       return;
     }
+    SensorDataContext playbackCtx = sensorDataContextMap.get(deviceMac);
+    if (playbackCtx != null && playbackCtx.source != null){
+      playbackCtx.source.stop();
+      playbackCtx.pipeline.stop();
+      promise.resolve(true);
+      return;
+    }
     SensorProfile sensor = sensorScaner.getSensor(deviceMac);
     boolean result = sensor.stopDataNotification();
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx != null) {
+      ctx.pipeline.stop();
+    }
     promise.resolve(result);
   }
   @ReactMethod
@@ -618,14 +1023,14 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
           data.packageSampleCount = packageSampleCount;
           data.K = microVoltConversionK;
           data.clear();
-          ctx.sensorData[DATA_TYPE_EEG] = data;
+          ctx.sensorData[SampleDecoder.DATA_TYPE_EEG] = data;
 
           sensor.getEegDataCap(new CommandResponseCallback() {
             @Override
             public void onGetEegDataCap(int resp, int[] supportedSampleRates, int maxChannelCount, int maxPackageSampleCount, int[] supportedResolutionBits) {
               if (resp == SensorProfile.ResponseResult.RSP_CODE_SUCCESS){
                 Log.d(TAG, "Device State: " + "get  EEG Cap succeeded");
-                ctx.sensorData[DATA_TYPE_EEG].channelCount = maxChannelCount;
+                ctx.sensorData[SampleDecoder.DATA_TYPE_EEG].channelCount = maxChannelCount;
                 ctx.notifyDataFlag |= (SensorProfile.DataNotifFlags.DNF_EEG);
                 promise.resolve(true);
                 if (inPackageSampleCount <= 0){
@@ -685,14 +1090,14 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
           data.packageSampleCount = packageSampleCount;
           data.K = microVoltConversionK;
           data.clear();
-          ctx.sensorData[DATA_TYPE_ECG] = data;
+          ctx.sensorData[SampleDecoder.DATA_TYPE_ECG] = data;
 
           sensor.getEcgDataCap(new CommandResponseCallback() {
             @Override
             public void onGetEcgDataCap(int resp, int[] supportedSampleRates, int maxChannelCount, int maxPackageSampleCount, int[] supportedResolutionBits) {
               if (resp == SensorProfile.ResponseResult.RSP_CODE_SUCCESS){
                 Log.d(TAG, "Device State: " + "get  ECG Cap succeeded");
-                ctx.sensorData[DATA_TYPE_ECG].channelCount = maxChannelCount;
+                ctx.sensorData[SampleDecoder.DATA_TYPE_ECG].channelCount = maxChannelCount;
                 ctx.notifyDataFlag |= (SensorProfile.DataNotifFlags.DNF_ECG);
                 if (inPackageSampleCount <= 0){
                   promise.resolve(true);
@@ -827,10 +1232,704 @@ public class SynchronySDKReactNativeModule extends com.synchronysdk.SynchronySDK
     if (deviceMac == null || deviceMac.isEmpty()){
       return "Invalid";
     }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx != null && ctx.source != null){
+      //virtual device is ready until playback is closed
+      return SensorProfile.BluetoothDeviceStateEx.Ready.name();
+    }
     SensorProfile sensor = sensorScaner.getSensor(deviceMac);
     String name = sensor.getState().name();
 //    Log.d(TAG, "status:" + name);
     return name;
   }
 
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setPackedTransport(String deviceMac, boolean enabled){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return false;
+    }
+    ctx.packedTransport = enabled;
+    return true;
+  }
+
+  //sends all data types of an emit in one GOT_COMBINED_DATA event, takes precedence over packed transport
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setCombinedTransport(String deviceMac, boolean enabled){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return false;
+    }
+    ctx.combinedTransport = enabled;
+    return true;
+  }
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setDataBatchPolicy(String deviceMac, double maxLatencyMs, double maxSamples){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return false;
+    }
+    if (!(maxLatencyMs <= SensorData.MAX_BATCH_LATENCY_MS && maxSamples <= SensorData.MAX_BATCH_SAMPLES)){
+      return false;
+    }
+    int latencyMs = Math.max(0, (int) maxLatencyMs);
+    synchronized (ctx){
+      ctx.cancelBatchFlush();
+      ctx.batchLatencyMs = latencyMs;
+      ctx.batchMaxSamples = Math.max(0, (int) maxSamples);
+      if (latencyMs > 0){
+        ctx.batchFlushFuture = scheduleData(() -> emissionScheduler.schedule(ctx.emitTask), latencyMs);
+        if (ctx.batchFlushFuture == null){
+          ctx.batchLatencyMs = 0;
+          return false;
+        }
+      }
+    }
+    //send samples pending from previous policy
+    emissionScheduler.schedule(ctx.emitTask);
+    return true;
+  }
+
+  //runs task every periodMs on the data scheduler, null once invalidate shut it down
+  @Nullable
+  private ScheduledFuture<?> scheduleData(Runnable task, long periodMs){
+    try{
+      return dataScheduler.scheduleAtFixedRate(task, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }catch (RejectedExecutionException e){
+      Log.w(TAG, "data scheduler is shut down");
+      return null;
+    }
+  }
+
+  @ReactMethod
+  @DoNotStrip
+  public void startRecording(String deviceMac, String filePath, Promise promise){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      promise.reject("startRecording","invalid device");
+      return;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      promise.resolve(false);
+      return;
+    }
+    synchronized (ctx){
+      if (ctx.recorder != null){
+        promise.resolve(false);
+        return;
+      }
+      SampleRecorder recorder = new SampleRecorder(deviceMac);
+      try{
+        recorder.open(filePath);
+      }catch (IOException e){
+        promise.reject("startRecording", e.getLocalizedMessage());
+        return;
+      }
+      ctx.recorder = recorder;
+    }
+    promise.resolve(true);
+  }
+
+  @ReactMethod
+  @DoNotStrip
+  public void rotateRecording(String deviceMac, String filePath, Promise promise){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      promise.reject("rotateRecording","invalid device");
+      return;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    SampleRecorder recorder = ctx != null ? ctx.recorder : null;
+    if (recorder == null) {
+      promise.resolve(false);
+      return;
+    }
+    try{
+      recorder.rotate(filePath);
+    }catch (IOException e){
+      closeRecorder(ctx);
+      promise.reject("rotateRecording", e.getLocalizedMessage());
+      return;
+    }
+    promise.resolve(true);
+  }
+
+  @ReactMethod
+  @DoNotStrip
+  public void stopRecording(String deviceMac, Promise promise){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      promise.reject("stopRecording","invalid device");
+      return;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null || ctx.recorder == null) {
+      promise.resolve(false);
+      return;
+    }
+    promise.resolve(closeRecorder(ctx));
+  }
+
+  //opens a recording as virtual device, replay starts with startDataNotification
+  //deviceMac may be empty to use the mac of the recorded device, resolves with the virtual device mac
+  @ReactMethod
+  @DoNotStrip
+  public void openPlayback(String filePath, String deviceMac, double speed, Promise promise){
+    RecordingPlayer player;
+    try{
+      player = new RecordingPlayer(filePath, speed);
+    }catch (IOException e){
+      promise.reject("openPlayback", e.getLocalizedMessage());
+      return;
+    }
+    String playbackMac = (deviceMac == null || deviceMac.isEmpty()) ? player.deviceMac() : deviceMac;
+    openSource("openPlayback", playbackMac, player, promise);
+  }
+
+  //opens a simulated sensor as virtual device, simulation starts with startDataNotification and is closed with closePlayback
+  //options override the SimulatedSensor.Config fields of the same name, resolves with the virtual device mac
+  @ReactMethod
+  @DoNotStrip
+  public void openSimulation(String deviceMac, ReadableMap options, Promise promise){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      promise.reject("openSimulation","invalid device");
+      return;
+    }
+    SimulatedSensor.Config config = new SimulatedSensor.Config();
+    config.deviceMac = deviceMac;
+    if (options != null){
+      config.eegChannelCount = getInt(options, "eegChannelCount", config.eegChannelCount);
+      config.eegSampleRate = getInt(options, "eegSampleRate", config.eegSampleRate);
+      config.eegResolutionBits = getInt(options, "eegResolutionBits", config.eegResolutionBits);
+      config.eegPackageSampleCount = getInt(options, "eegPackageSampleCount", config.eegPackageSampleCount);
+      config.ecgChannelCount = getInt(options, "ecgChannelCount", config.ecgChannelCount);
+      config.ecgSampleRate = getInt(options, "ecgSampleRate", config.ecgSampleRate);
+      config.ecgResolutionBits = getInt(options, "ecgResolutionBits", config.ecgResolutionBits);
+      config.ecgPackageSampleCount = getInt(options, "ecgPackageSampleCount", config.ecgPackageSampleCount);
+      if (options.hasKey("imu")){
+        config.imu = options.getBoolean("imu");
+      }
+      config.impedanceIntervalMs = getInt(options, "impedanceIntervalMs", config.impedanceIntervalMs);
+      config.speed = getDouble(options, "speed", config.speed);
+      config.durationMs = (long) getDouble(options, "durationMs", config.durationMs);
+      config.firstPackageIndex = getInt(options, "firstPackageIndex", config.firstPackageIndex);
+      config.lossPercent = getDouble(options, "lossPercent", config.lossPercent);
+      config.lossBurst = getInt(options, "lossBurst", config.lossBurst);
+      config.duplicatePercent = getDouble(options, "duplicatePercent", config.duplicatePercent);
+      config.truncatePercent = getDouble(options, "truncatePercent", config.truncatePercent);
+      config.seed = (long) getDouble(options, "seed", config.seed);
+    }
+    String errorMsg = config.validate();
+    if (errorMsg != null){
+      promise.reject("openSimulation", errorMsg);
+      return;
+    }
+    openSource("openSimulation", deviceMac, new SimulatedSensor(config), promise);
+  }
+
+  private static int getInt(ReadableMap options, String name, int defaultValue){
+    return options.hasKey(name) && !options.isNull(name) ? options.getInt(name) : defaultValue;
+  }
+
+  private static double getDouble(ReadableMap options, String name, double defaultValue){
+    return options.hasKey(name) && !options.isNull(name) ? options.getDouble(name) : defaultValue;
+  }
+
+  //a virtual device replaces the previous virtual device of the same mac, but not a real one
+  private void openSource(String method, String deviceMac, SensorSource source, Promise promise){
+    SensorDataContext oldCtx = sensorDataContextMap.get(deviceMac);
+    if (oldCtx != null && oldCtx.source == null){
+      promise.reject(method, "device is in use: " + deviceMac);
+      return;
+    }
+    if (oldCtx != null){
+      oldCtx.source.stop();
+    }
+    initDataContext(deviceMac);
+    sensorDataContextMap.get(deviceMac).source = source;
+    sendPlaybackState(deviceMac, SensorProfile.BluetoothDeviceStateEx.Ready);
+    promise.resolve(deviceMac);
+  }
+
+  //closes a virtual device opened by openPlayback or openSimulation
+  @ReactMethod
+  @DoNotStrip
+  public void closePlayback(String deviceMac, Promise promise){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      promise.reject("closePlayback","invalid device");
+      return;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null || ctx.source == null) {
+      promise.resolve(false);
+      return;
+    }
+    sensorDataContextMap.remove(deviceMac, ctx);
+    ctx.source.stop();
+    ctx.pipeline.stop();
+    ctx.cancelBatchFlush();
+    ctx.cancelStatsReport();
+    closeRecorder(ctx);
+    sendPlaybackState(deviceMac, SensorProfile.BluetoothDeviceStateEx.Disconnected);
+    promise.resolve(true);
+  }
+
+  private void startSource(SensorDataContext ctx){
+    //the decoder thread must not be in readSamples while the rings are dropped
+    ctx.pipeline.stopAndJoin();
+    ctx.pipeline.discardPending();
+    ctx.clear();
+    ctx.pipeline.start();
+    ctx.source.start(new SensorSource.Listener() {
+      @Override
+      public void onStream(SensorData sensorData) {
+        //frames queued with the previous config may be decoded with the new one
+        ctx.sensorData[SampleDecoder.dataTypeIndex(sensorData.dataType)] = sensorData;
+      }
+
+      @Override
+      public boolean onFrame(byte[] data) {
+        //same path as dataCallback, a replay waits for a full pipeline, a real time simulation drops like BLE
+        return !ctx.pipeline.isFull() && ctx.pipeline.offer(data);
+      }
+
+      @Override
+      public void onFinished(String errorMsg) {
+        if (errorMsg == null){
+          return;
+        }
+        Log.w(TAG, errorMsg);
+        WritableMap result = Arguments.createMap();
+        result.putString("deviceMac", ctx.deviceMac);
+        result.putString("errMsg", errorMsg);
+        sendEvent(getReactApplicationContext(), "GOT_ERROR", result);
+      }
+    });
+  }
+
+  private void sendPlaybackState(String deviceMac, SensorProfile.BluetoothDeviceStateEx newState){
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", deviceMac);
+    result.putInt("newState", newState.ordinal());
+    sendEvent(getReactApplicationContext(), "STATE_CHANGED", result);
+  }
+
+  private boolean closeRecorder(SensorDataContext ctx){
+    SampleRecorder recorder;
+    synchronized (ctx){
+      recorder = ctx.recorder;
+      ctx.recorder = null;
+    }
+    if (recorder == null){
+      return false;
+    }
+    try{
+      recorder.close();
+      return true;
+    }catch (IOException e){
+      Log.w(TAG, "close recording failed: " + e.getLocalizedMessage());
+      return false;
+    }
+  }
+
+  //bands are low, high pairs in Hz, windowMs <= 0 stops band power
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setFeatureExtraction(String deviceMac, double dataType, double windowMs, double hopMs,
+                                      ReadableArray bands, boolean suppressRaw){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0) {
+      return false;
+    }
+    if (windowMs <= 0){
+      ctx.featureExtractors[index] = null;
+      return true;
+    }
+    double[] bandFrequencies = new double[bands == null ? 0 : bands.size()];
+    for (int band = 0;band < bandFrequencies.length;++band){
+      bandFrequencies[band] = bands.getDouble(band);
+    }
+    FeatureExtractor featureExtractor = new FeatureExtractor((int) windowMs, (int) hopMs, bandFrequencies, suppressRaw);
+    if (!featureExtractor.isValid()){
+      return false;
+    }
+    ctx.featureExtractors[index] = featureExtractor;
+    return true;
+  }
+
+  //factor <= 1 sends the full rate again
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setDisplayDecimation(String deviceMac, double dataType, double factor, double mode){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0) {
+      return false;
+    }
+    if (factor <= 1){
+      ctx.decimators[index] = null;
+      return true;
+    }
+    SampleDecimator decimator = new SampleDecimator((int) factor, (int) mode);
+    if (!decimator.isValid()){
+      return false;
+    }
+    ctx.decimators[index] = decimator;
+    return true;
+  }
+
+  //channels are channel indexes, fields are names of sample fields, an empty array selects all
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setDataSubscription(String deviceMac, double dataType, ReadableArray channels, ReadableArray fields){
+    if (deviceMac == null || deviceMac.isEmpty() || channels == null || fields == null){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0) {
+      return false;
+    }
+    long channelMask = channels.size() == 0 ? -1L : 0;
+    for (int channel = 0;channel < channels.size();++channel){
+      int channelIndex = channels.getInt(channel);
+      if (channelIndex < 0 || channelIndex >= 64){
+        return false;
+      }
+      channelMask |= 1L << channelIndex;
+    }
+    int fieldMask = fields.size() == 0 ? DataSubscription.ALL_FIELDS : 0;
+    for (int field = 0;field < fields.size();++field){
+      int bit = DataSubscription.field(fields.getString(field));
+      if (bit == 0){
+        return false;
+      }
+      fieldMask |= bit;
+    }
+    ctx.subscriptions[index] = new DataSubscription(channelMask, fieldMask);
+    return true;
+  }
+
+  //frequencies in Hz, 0 disables a stage, all 0 removes the filter
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setSignalFilter(String deviceMac, double dataType, double notchFrequency,
+                                 double highPassFrequency, double lowPassFrequency, boolean replaceData){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0) {
+      return false;
+    }
+    if (notchFrequency == 0 && highPassFrequency == 0 && lowPassFrequency == 0){
+      ctx.filters[index] = null;
+      return true;
+    }
+    SignalFilter filter = new SignalFilter(notchFrequency, highPassFrequency, lowPassFrequency, replaceData);
+    if (!filter.isValid()){
+      return false;
+    }
+    ctx.filters[index] = filter;
+    return true;
+  }
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setHistoryDuration(String deviceMac, double dataType, double durationMs){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0) {
+      return false;
+    }
+    ctx.historyDurationMs[index] = Math.max(0, (int) durationMs);
+    return true;
+  }
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public WritableMap getStats(String deviceMac){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return null;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return null;
+    }
+    return statsMap(ctx);
+  }
+
+  //sends GOT_STATS every intervalMs, 0 stops it
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public boolean setStatsInterval(String deviceMac, double intervalMs){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return false;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return false;
+    }
+    int periodMs = Math.max(0, (int) intervalMs);
+    synchronized (ctx){
+      ctx.cancelStatsReport();
+      if (periodMs > 0){
+        ctx.statsFuture = scheduleData(() -> sendEvent(getReactApplicationContext(), "GOT_STATS", statsMap(ctx)), periodMs);
+        return ctx.statsFuture != null;
+      }
+    }
+    return true;
+  }
+
+  //merges streams of several devices into GOT_MERGED_DATA frames at rateHz, a frame is sent latencyMs after its time,
+  //deviceMacs[n] and dataTypes[n] select input n, merged streams are not sent as GOT_DATA until stopMerge, one merge runs at a time
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public synchronized boolean startMerge(ReadableArray deviceMacs, ReadableArray dataTypes, double rateHz, double latencyMs){
+    if (deviceMacs == null || dataTypes == null || deviceMacs.size() == 0 || deviceMacs.size() != dataTypes.size()
+      || deviceMacs.size() > StreamMerger.MAX_INPUTS || rateHz <= 0 || rateHz > 16000 || latencyMs < 0 || latencyMs > 10000){
+      return false;
+    }
+    int inputCount = deviceMacs.size();
+    String[] macs = new String[inputCount];
+    int[] types = new int[inputCount];
+    SensorDataContext[] contexts = new SensorDataContext[inputCount];
+    for (int input = 0;input < inputCount;++input){
+      macs[input] = deviceMacs.getString(input);
+      types[input] = dataTypes.getInt(input);
+      contexts[input] = macs[input] != null ? sensorDataContextMap.get(macs[input]) : null;
+      if (contexts[input] == null || SampleDecoder.dataTypeIndex(types[input]) < 0){
+        return false;
+      }
+      for (int other = 0;other < input;++other){
+        if (contexts[other] == contexts[input] && types[other] == types[input]){
+          return false;
+        }
+      }
+    }
+    stopMerge();
+    StreamMerger newMerger = new StreamMerger(macs, types, rateHz, (long) (latencyMs * 1e6));
+    ScheduledFuture<?> future = scheduleData(() -> sendMergedFrames(newMerger), MERGE_INTERVAL_MS);
+    if (future == null){
+      return false;
+    }
+    for (int input = 0;input < inputCount;++input){
+      contexts[input].mergeInputs[SampleDecoder.dataTypeIndex(types[input])] = newMerger.inputs[input];
+    }
+    merger = newMerger;
+    mergeFuture = future;
+    return true;
+  }
+
+  //merged streams are sent as GOT_DATA again, returns false if no merge was running
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public synchronized boolean stopMerge(){
+    if (merger == null){
+      return false;
+    }
+    mergeFuture.cancel(false);
+    mergeFuture = null;
+    for (SensorDataContext ctx : sensorDataContextMap.values()){
+      for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+        if (ctx.mergeInputs[index] != null && ctx.mergeInputs[index].merger == merger){
+          ctx.mergeInputs[index] = null;
+        }
+      }
+    }
+    merger = null;
+    return true;
+  }
+
+  //runs on the data scheduler thread
+  private void sendMergedFrames(StreamMerger merger){
+    int frameCount = merger.collect(System.nanoTime());
+    if (frameCount == 0){
+      return;
+    }
+    WritableMap result = Arguments.createMap();
+    result.putInt("frameCount", frameCount);
+    result.putDouble("timestampMs", (merger.firstFrameNanos + bootOffsetNanos()) / 1e6);
+    result.putDouble("framePeriodMs", merger.framePeriodNanos / 1e6);
+    result.putDouble("skippedFrames", merger.skippedFrames());
+    WritableArray inputsResult = Arguments.createArray();
+    for (int index = 0;index < merger.inputs.length;++index){
+      StreamMerger.Input input = merger.inputs[index];
+      WritableMap inputResult = Arguments.createMap();
+      inputResult.putString("deviceMac", input.deviceMac);
+      inputResult.putInt("dataType", input.dataType);
+      WritableArray channelsResult = Arguments.createArray();
+      for (int channel : merger.frameChannels[index]){
+        channelsResult.pushInt(channel);
+      }
+      inputResult.putArray("channels", channelsResult);
+      inputResult.putDouble("lateSamples", input.lateSamples.get());
+      inputResult.putDouble("droppedSamples", input.droppedSamples.get());
+      inputResult.putDouble("gapFrames", input.gapFrames.get());
+      inputsResult.pushMap(inputResult);
+    }
+    result.putArray("inputs", inputsResult);
+    ByteBuffer buffer = merger.frameValues;
+    result.putString("payload", Base64.encodeToString(buffer.array(), 0, buffer.position(), Base64.NO_WRAP));
+    sendEvent(getReactApplicationContext(), "GOT_MERGED_DATA", result);
+  }
+
+  //percentiles since the last reset, reset starts a new interval
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public WritableMap getLatencyPercentiles(String deviceMac, boolean reset){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return null;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    if (ctx == null) {
+      return null;
+    }
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    LatencyHistogram.Percentiles delivery = ctx.deliveryLatency.percentiles(reset);
+    result.putDouble("intervalMs", delivery.intervalNanos / 1e6);
+    result.putMap("arrivalInterval", percentilesMap(ctx.arrivalIntervals.percentiles(reset)));
+    result.putMap("decode", percentilesMap(ctx.decodeLatency.percentiles(reset)));
+    result.putMap("delivery", percentilesMap(delivery));
+    return result;
+  }
+
+  private static WritableMap percentilesMap(LatencyHistogram.Percentiles percentiles){
+    WritableMap result = Arguments.createMap();
+    result.putDouble("count", percentiles.count);
+    result.putDouble("p50", percentiles.p50 / 1e6);
+    result.putDouble("p99", percentiles.p99 / 1e6);
+    result.putDouble("p999", percentiles.p999 / 1e6);
+    result.putDouble("max", percentiles.max / 1e6);
+    return result;
+  }
+
+  //counters are totals since the device was initialized, times in ms
+  private static WritableMap statsMap(SensorDataContext ctx){
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putDouble("receivedPackets", ctx.pipeline.receivedPackets());
+    result.putDouble("droppedPackets", ctx.pipeline.droppedPackets());
+    result.putInt("queueDepth", ctx.pipeline.depth());
+    result.putInt("maxQueueDepth", ctx.pipeline.maxDepth());
+    result.putInt("queueCapacity", ctx.pipeline.capacity());
+    WritableArray streamsResult = Arguments.createArray();
+    for (int index = 0;index < SampleDecoder.DATA_TYPE_COUNT;++index){
+      SensorData sensorData = ctx.sensorData[index];
+      if (sensorData == null){
+        continue;
+      }
+      StreamStats stats = ctx.stats[index];
+      long emits = stats.get(StreamStats.EMITS);
+      WritableMap streamResult = Arguments.createMap();
+      streamResult.putInt("dataType", sensorData.dataType);
+      streamResult.putDouble("packets", stats.get(StreamStats.PACKETS));
+      streamResult.putDouble("duplicatePackets", stats.get(StreamStats.DUPLICATE_PACKETS));
+      streamResult.putDouble("lostPackets", stats.get(StreamStats.LOST_PACKETS));
+      streamResult.putDouble("malformedPackets", stats.get(StreamStats.MALFORMED_PACKETS));
+      streamResult.putDouble("lostSamples", stats.get(StreamStats.LOST_SAMPLES));
+      streamResult.putDouble("decodedSamples", stats.get(StreamStats.DECODED_SAMPLES));
+      streamResult.putDouble("droppedSamples", sensorData.droppedSamples);
+      streamResult.putInt("pendingSamples", sensorData.pendingSampleCount());
+      streamResult.putDouble("decodeMs", stats.get(StreamStats.DECODE_NANOS) / 1e6);
+      streamResult.putDouble("emits", emits);
+      streamResult.putDouble("emittedSamples", stats.get(StreamStats.EMITTED_SAMPLES));
+      streamResult.putDouble("emitMs", stats.get(StreamStats.EMIT_NANOS) / 1e6);
+      streamResult.putDouble("meanLatencyMs", emits > 0 ? stats.get(StreamStats.LATENCY_NANOS) / 1e6 / emits : 0);
+      streamResult.putDouble("maxLatencyMs", stats.get(StreamStats.MAX_LATENCY_NANOS) / 1e6);
+      SampleClock.Estimate estimate = sensorData.clock.estimate;
+      streamResult.putDouble("clockDriftPpm", estimate != null ? estimate.driftPpm : 0);
+      streamsResult.pushMap(streamResult);
+    }
+    result.putArray("streams", streamsResult);
+    return result;
+  }
+
+  //fromSampleIndex < 0 reads the last count samples
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public WritableMap readWindow(String deviceMac, double dataType, double fromSampleIndex, double count){
+    if (deviceMac == null || deviceMac.isEmpty()){
+      return null;
+    }
+    SensorDataContext ctx = sensorDataContextMap.get(deviceMac);
+    int index = SampleDecoder.dataTypeIndex((int) dataType);
+    if (ctx == null || index < 0 || ctx.sensorData[index] == null) {
+      return null;
+    }
+    SensorData sensorData = ctx.sensorData[index];
+    SensorData.SampleRing history = sensorData.history;
+    if (history == null){
+      return null;
+    }
+
+    //history is read by JS code that asked for it, it ignores the display subscription
+    SensorData.ChannelLayout layout = sensorData.channelLayout();
+    int[] selected = allChannels(layout);
+    int fields = DataSubscription.ALL_FIELDS & ~DataSubscription.FIELD_FILTERED;
+    int sampleCount = 0;
+    int firstSampleIndex = 0;
+    int size = 0;
+    ByteBuffer buffer = null;
+    for (int retry = 0;retry < MAX_READ_WINDOW_RETRY;++retry){
+      int endPosition = history.writePosition;
+      int oldestPosition = Math.max(history.firstPosition, endPosition - history.capacity);
+      int startPosition = fromSampleIndex < 0 ? endPosition - (int) count : (int) fromSampleIndex;
+      startPosition = Math.max(startPosition, oldestPosition);
+      sampleCount = Math.max(0, Math.min(startPosition + (int) count, endPosition) - startPosition);
+      //history is addressed by sample index
+      firstSampleIndex = startPosition;
+
+      size = packedSize(selected.length, sampleCount, fields);
+      buffer = sensorData.prepareHistoryPackBuffer(size);
+      packSamples(layout, selected, fields, history, startPosition, sampleCount, null, buffer);
+      //decoder thread may overwrite slots while packing, retry if it reached the window
+      if (history.reservePosition - history.capacity <= startPosition){
+        break;
+      }
+      sampleCount = 0;
+      size = 0;
+    }
+
+    WritableMap result = Arguments.createMap();
+    result.putString("deviceMac", ctx.deviceMac);
+    result.putInt("dataType", sensorData.dataType);
+    result.putInt("sampleRate", sensorData.sampleRate);
+    result.putInt("channelCount", sensorData.channelCount);
+    result.putInt("packageSampleCount", sensorData.packageSampleCount);
+    result.putInt("sampleCount", sampleCount);
+    result.putArray("channels", channelIndexes(layout, selected));
+    result.putInt("fields", fields);
+    if (sampleCount > 0){
+      putTimestamp(result, sensorData, firstSampleIndex);
+    }
+    //history keeps lost samples as slots
+    result.putArray("lostRanges", Arguments.createArray());
+    result.putString("payload", Base64.encodeToString(buffer.array(), 0, size, Base64.NO_WRAP));
+    return result;
+  }
+
 }
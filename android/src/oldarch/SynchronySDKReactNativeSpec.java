@@ -7,6 +7,7 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
 
 abstract class SynchronySDKReactNativeSpec extends ReactContextBaseJavaModule {
   SynchronySDKReactNativeSpec(ReactApplicationContext context) {
@@ -73,4 +74,86 @@ abstract class SynchronySDKReactNativeSpec extends ReactContextBaseJavaModule {
   @DoNotStrip
   public abstract String getDeviceState(String deviceMac);
 
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setPackedTransport(String deviceMac, boolean enabled);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setCombinedTransport(String deviceMac, boolean enabled);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setDataBatchPolicy(String deviceMac, double maxLatencyMs, double maxSamples);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void startRecording(String deviceMac, String filePath, Promise promise);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void rotateRecording(String deviceMac, String filePath, Promise promise);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void stopRecording(String deviceMac, Promise promise);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void openPlayback(String filePath, String deviceMac, double speed, Promise promise);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void openSimulation(String deviceMac, ReadableMap options, Promise promise);
+
+  @ReactMethod
+  @DoNotStrip
+  public abstract void closePlayback(String deviceMac, Promise promise);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setFeatureExtraction(String deviceMac, double dataType, double windowMs, double hopMs,
+                                               ReadableArray bands, boolean suppressRaw);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setDataSubscription(String deviceMac, double dataType, ReadableArray channels, ReadableArray fields);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setDisplayDecimation(String deviceMac, double dataType, double factor, double mode);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setSignalFilter(String deviceMac, double dataType, double notchFrequency,
+                                          double highPassFrequency, double lowPassFrequency, boolean replaceData);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setHistoryDuration(String deviceMac, double dataType, double durationMs);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract WritableMap readWindow(String deviceMac, double dataType, double fromSampleIndex, double count);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract WritableMap getStats(String deviceMac);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean setStatsInterval(String deviceMac, double intervalMs);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract WritableMap getLatencyPercentiles(String deviceMac, boolean reset);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean startMerge(ReadableArray deviceMacs, ReadableArray dataTypes, double rateHz, double latencyMs);
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  @DoNotStrip
+  public abstract boolean stopMerge();
+
 }
@@ -49,6 +49,12 @@ RCT_EXPORT_MODULE()
              @"STATE_CHANGED",
              @"GOT_DATA",
              @"GOT_DEVICE_LIST",
+             @"GOT_DEVICE_DELTA",
+             @"GOT_PACKED_DATA",
+             @"GOT_FEATURES",
+             @"GOT_STATS",
+             @"GOT_MERGED_DATA",
+             @"GOT_COMBINED_DATA",
     ];
 }
 
@@ -367,6 +373,123 @@ packageSampleCount:(double)packageSampleCount
     }
     return @"Invalid";
 }
+
+- (NSNumber *)setPackedTransport:(NSString *)deviceMac enabled:(BOOL)enabled {
+    //packed transport is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setCombinedTransport:(NSString *)deviceMac enabled:(BOOL)enabled {
+    //combined transport is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setDataBatchPolicy:(NSString *)deviceMac maxLatencyMs:(double)maxLatencyMs maxSamples:(double)maxSamples {
+    //batch policy is only implemented on android
+    return @(NO);
+}
+
+- (void)startRecording:(NSString *)deviceMac
+              filePath:(NSString *)filePath
+               resolve:(RCTPromiseResolveBlock)resolve
+                reject:(RCTPromiseRejectBlock)reject{
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+- (void)rotateRecording:(NSString *)deviceMac
+               filePath:(NSString *)filePath
+                resolve:(RCTPromiseResolveBlock)resolve
+                 reject:(RCTPromiseRejectBlock)reject{
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+- (void)stopRecording:(NSString *)deviceMac
+              resolve:(RCTPromiseResolveBlock)resolve
+               reject:(RCTPromiseRejectBlock)reject{
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+- (void)openPlayback:(NSString *)filePath
+           deviceMac:(NSString *)deviceMac
+               speed:(double)speed
+             resolve:(RCTPromiseResolveBlock)resolve
+              reject:(RCTPromiseRejectBlock)reject{
+    //playback is only implemented on android
+    resolve(@"");
+}
+
+- (void)openSimulation:(NSString *)deviceMac
+               options:(NSDictionary *)options
+               resolve:(RCTPromiseResolveBlock)resolve
+                reject:(RCTPromiseRejectBlock)reject{
+    //simulation is only implemented on android
+    resolve(@"");
+}
+
+- (void)closePlayback:(NSString *)deviceMac
+              resolve:(RCTPromiseResolveBlock)resolve
+               reject:(RCTPromiseRejectBlock)reject{
+    //playback is only implemented on android
+    resolve(@(FALSE));
+}
+
+- (NSNumber *)setFeatureExtraction:(NSString *)deviceMac dataType:(double)dataType windowMs:(double)windowMs hopMs:(double)hopMs bands:(NSArray *)bands suppressRaw:(BOOL)suppressRaw {
+    //feature extraction is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setDataSubscription:(NSString *)deviceMac dataType:(double)dataType channels:(NSArray *)channels fields:(NSArray *)fields {
+    //data subscription is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setDisplayDecimation:(NSString *)deviceMac dataType:(double)dataType factor:(double)factor mode:(double)mode {
+    //decimation is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setSignalFilter:(NSString *)deviceMac dataType:(double)dataType notchFrequency:(double)notchFrequency highPassFrequency:(double)highPassFrequency lowPassFrequency:(double)lowPassFrequency replaceData:(BOOL)replaceData {
+    //signal filter is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)setHistoryDuration:(NSString *)deviceMac dataType:(double)dataType durationMs:(double)durationMs {
+    //history is only implemented on android
+    return @(NO);
+}
+
+- (NSDictionary *)readWindow:(NSString *)deviceMac dataType:(double)dataType fromSampleIndex:(double)fromSampleIndex count:(double)count {
+    //history is only implemented on android
+    return nil;
+}
+
+- (NSDictionary *)getStats:(NSString *)deviceMac {
+    //stats are only implemented on android
+    return nil;
+}
+
+- (NSNumber *)setStatsInterval:(NSString *)deviceMac intervalMs:(double)intervalMs {
+    //stats are only implemented on android
+    return @(NO);
+}
+
+- (NSDictionary *)getLatencyPercentiles:(NSString *)deviceMac reset:(BOOL)reset {
+    //stats are only implemented on android
+    return nil;
+}
+
+- (NSNumber *)startMerge:(NSArray *)deviceMacs dataTypes:(NSArray *)dataTypes rateHz:(double)rateHz latencyMs:(double)latencyMs {
+    //merge is only implemented on android
+    return @(NO);
+}
+
+- (NSNumber *)stopMerge {
+    //merge is only implemented on android
+    return @(NO);
+}
 #else
 
 #pragma mark - Old Module methods
@@ -446,6 +569,120 @@ RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(getDeviceState, NSNumber *_Nonnull,
     return @([self _getDeviceState:deviceMac]);
 }
 
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setPackedTransport, NSNumber *_Nonnull,
+                                      setPackedTransport:(NSString*_Nonnull)deviceMac enabled:(BOOL)enabled) {
+    //packed transport is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setCombinedTransport, NSNumber *_Nonnull,
+                                      setCombinedTransport:(NSString*_Nonnull)deviceMac enabled:(BOOL)enabled) {
+    //combined transport is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setDataBatchPolicy, NSNumber *_Nonnull,
+                                      setDataBatchPolicy:(NSString*_Nonnull)deviceMac maxLatencyMs:(nonnull NSNumber*)maxLatencyMs maxSamples:(nonnull NSNumber*)maxSamples) {
+    //batch policy is only implemented on android
+    return @(NO);
+}
+
+RCT_EXPORT_METHOD(startRecording:(NSString*_Nonnull)deviceMac filePath:(NSString*_Nonnull)filePath resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+RCT_EXPORT_METHOD(rotateRecording:(NSString*_Nonnull)deviceMac filePath:(NSString*_Nonnull)filePath resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+RCT_EXPORT_METHOD(stopRecording:(NSString*_Nonnull)deviceMac resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //recording is only implemented on android
+    resolve(@(FALSE));
+}
+
+RCT_EXPORT_METHOD(openPlayback:(NSString*_Nonnull)filePath deviceMac:(NSString*_Nonnull)deviceMac speed:(nonnull NSNumber*)speed resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //playback is only implemented on android
+    resolve(@"");
+}
+
+RCT_EXPORT_METHOD(openSimulation:(NSString*_Nonnull)deviceMac options:(NSDictionary*_Nonnull)options resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //simulation is only implemented on android
+    resolve(@"");
+}
+
+RCT_EXPORT_METHOD(closePlayback:(NSString*_Nonnull)deviceMac resolve:(RCTPromiseResolveBlock)resolve reject:(RCTPromiseRejectBlock)reject) {
+    //playback is only implemented on android
+    resolve(@(FALSE));
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setFeatureExtraction, NSNumber *_Nonnull,
+                                      setFeatureExtraction:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType windowMs:(nonnull NSNumber*)windowMs hopMs:(nonnull NSNumber*)hopMs bands:(NSArray*_Nonnull)bands suppressRaw:(BOOL)suppressRaw) {
+    //feature extraction is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setDataSubscription, NSNumber *_Nonnull,
+                                      setDataSubscription:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType channels:(NSArray*_Nonnull)channels fields:(NSArray*_Nonnull)fields) {
+    //data subscription is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setDisplayDecimation, NSNumber *_Nonnull,
+                                      setDisplayDecimation:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType factor:(nonnull NSNumber*)factor mode:(nonnull NSNumber*)mode) {
+    //decimation is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setSignalFilter, NSNumber *_Nonnull,
+                                      setSignalFilter:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType notchFrequency:(nonnull NSNumber*)notchFrequency highPassFrequency:(nonnull NSNumber*)highPassFrequency lowPassFrequency:(nonnull NSNumber*)lowPassFrequency replaceData:(BOOL)replaceData) {
+    //signal filter is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setHistoryDuration, NSNumber *_Nonnull,
+                                      setHistoryDuration:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType durationMs:(nonnull NSNumber*)durationMs) {
+    //history is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(readWindow, NSDictionary *,
+                                      readWindow:(NSString*_Nonnull)deviceMac dataType:(nonnull NSNumber*)dataType fromSampleIndex:(nonnull NSNumber*)fromSampleIndex count:(nonnull NSNumber*)count) {
+    //history is only implemented on android
+    return nil;
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(getStats, NSDictionary *,
+                                      getStats:(NSString*_Nonnull)deviceMac) {
+    //stats are only implemented on android
+    return nil;
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(setStatsInterval, NSNumber *_Nonnull,
+                                      setStatsInterval:(NSString*_Nonnull)deviceMac intervalMs:(nonnull NSNumber*)intervalMs) {
+    //stats are only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(getLatencyPercentiles, NSDictionary *,
+                                      getLatencyPercentiles:(NSString*_Nonnull)deviceMac reset:(BOOL)reset) {
+    //stats are only implemented on android
+    return nil;
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(startMerge, NSNumber *_Nonnull,
+                                      startMerge:(NSArray*_Nonnull)deviceMacs dataTypes:(NSArray*_Nonnull)dataTypes rateHz:(nonnull NSNumber*)rateHz latencyMs:(nonnull NSNumber*)latencyMs) {
+    //merge is only implemented on android
+    return @(NO);
+}
+
+RCT_REMAP_BLOCKING_SYNCHRONOUS_METHOD(stopMerge, NSNumber *_Nonnull,
+                                      stopMerge) {
+    //merge is only implemented on android
+    return @(NO);
+}
+
 #endif
 
 #pragma mark - SensorControllerDelegate
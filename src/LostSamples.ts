@@ -0,0 +1,42 @@
+import type { Sample, SensorData } from './NativeSynchronySDKReactNative';
+
+//inserts samples with isLost for lostRanges into the subscribed channels, ordered by sampleIndex
+//data is 0, impedance and saturation keep the last value before the range, NaN when there is none
+export function fillLostSamples(sensorData: SensorData): SensorData {
+  const lostRanges = sensorData.lostRanges;
+  if (!lostRanges || lostRanges.length === 0) {
+    return sensorData;
+  }
+  const channels = sensorData.channels ?? [];
+  const channelSamples = sensorData.channelSamples.slice();
+  channels.forEach((channelIndex) => {
+    const samples = channelSamples[channelIndex] ?? [];
+    const filled = new Array<Sample>();
+    let sampleIndex = 0;
+    lostRanges.forEach((range) => {
+      while (
+        sampleIndex < samples.length &&
+        samples[sampleIndex]!.sampleIndex < range.sampleIndex
+      ) {
+        filled.push(samples[sampleIndex++]!);
+      }
+      const last = filled.length > 0 ? filled[filled.length - 1] : undefined;
+      const impedance = last?.impedance ?? NaN;
+      const saturation = last?.saturation ?? NaN;
+      for (let index = 0; index < range.count; ++index) {
+        filled.push({
+          data: 0,
+          impedance: impedance,
+          saturation: saturation,
+          sampleIndex: range.sampleIndex + index * (range.step ?? 1),
+          isLost: true,
+        });
+      }
+    });
+    while (sampleIndex < samples.length) {
+      filled.push(samples[sampleIndex++]!);
+    }
+    channelSamples[channelIndex] = filled;
+  });
+  return { ...sensorData, channelSamples: channelSamples, lostRanges: [] };
+}
@@ -17,12 +17,24 @@ export enum DataType {
   NTF_ECG = 0x11,
 }
 
+export enum DecimationMode {
+  Average,
+  MinMax,
+}
+
 export type BLEDevice = {
   Name: string;
   Address: string;
   RSSI: number;
 };
 
+//changes of the scanned devices since the last delta
+export type DeviceListDelta = {
+  added: Array<BLEDevice>;
+  updated: Array<BLEDevice>; //RSSI moved by 3 or more, or the name changed
+  removed: Array<string>; //Address of devices no longer seen
+};
+
 export type DeviceInfo = {
   DeviceName: string;
   ModelName: string;
@@ -36,17 +48,26 @@ export type EventResult = {
   newState: DeviceStateEx;
 };
 
+//keys not in the data subscription of the stream are not set, sampleIndex is always set
 export type Sample = {
   // rawData: number;
   data: number;
   impedance: number;
   saturation: number;
+  filtered?: number; //set when a signal filter is sent next to data
   // timeStampInMs: number;
   sampleIndex: number;
   // channelIndex: number;
   isLost: boolean;
 };
 
+//lost samples [sampleIndex, sampleIndex + count), they have no slots in the stream
+export type LostRange = {
+  sampleIndex: number;
+  count: number;
+  step?: number; //sample index step between the lost samples of decimated streams, 1 when not set
+};
+
 export type SensorData = {
   deviceMac: string;
   dataType: DataType;
@@ -57,6 +78,178 @@ export type SensorData = {
   packageSampleCount: number;
   // K: number;
   channelSamples: Array<Array<Sample>>; //First array is channel, second array is samples
+  channels?: Array<number>; //subscribed channel indexes
+  lostRanges?: Array<LostRange>; //filled into channelSamples unless SensorProfile.fillLostSamples is false
+  //SystemClock.elapsedRealtime() ms of the first sample, drift corrected, not set without samples
+  timestampMs?: number;
+  timestampSampleIndex?: number;
+  samplePeriodMs?: number; //sample n is at timestampMs + (n - timestampSampleIndex) * samplePeriodMs
+};
+
+export type PackedSensorData = {
+  deviceMac: string;
+  dataType: DataType;
+  sampleRate: number;
+  channelCount: number;
+  packageSampleCount: number;
+  sampleCount: number;
+  channels: Array<number>; //channel indexes present in payload
+  fields: number; //bits of columns in payload: 1 data, 2 impedance, 4 saturation, 8 isLost, 16 filtered
+  lostRanges: Array<LostRange>;
+  timestampMs?: number;
+  timestampSampleIndex?: number;
+  samplePeriodMs?: number;
+  payload: string; //base64 of packed little endian buffers
+};
+
+//one stream of PackedCombinedData, its payload from offset is laid out like PackedSensorData.payload
+export type PackedSection = {
+  dataType: DataType;
+  sampleRate: number;
+  channelCount: number;
+  packageSampleCount: number;
+  sampleCount: number;
+  channels: Array<number>;
+  fields: number;
+  lostRanges: Array<LostRange>;
+  timestampMs?: number;
+  timestampSampleIndex?: number;
+  samplePeriodMs?: number;
+  offset: number; //byte offset in payload, multiple of 4
+};
+
+//all data types of one emit of a device
+export type PackedCombinedData = {
+  deviceMac: string;
+  sections: Array<PackedSection>;
+  payload: string; //base64 of packed little endian buffers
+};
+
+export type SensorDataBatch = {
+  deviceMac: string;
+  dataType: DataType;
+  sampleRate: number;
+  channelCount: number;
+  packageSampleCount: number;
+  sampleCount: number;
+  sampleIndex: Int32Array;
+  data: Array<Float32Array>; //First array is channel, empty for disabled or unsubscribed channel
+  impedance: Array<Float32Array>;
+  saturation: Array<Float32Array>;
+  filtered?: Array<Float32Array>;
+  isLost: Uint8Array; //empty when isLost is not subscribed
+  lostRanges: Array<LostRange>; //lost samples are not in the columns
+  //SystemClock.elapsedRealtime() ms of sampleIndex[0], drift corrected, not set when sampleCount is 0
+  timestampMs?: number;
+  timestampSampleIndex?: number;
+  samplePeriodMs?: number; //sample n is at timestampMs + (n - timestampSampleIndex) * samplePeriodMs
+};
+
+export type FeatureData = {
+  deviceMac: string;
+  dataType: DataType;
+  sampleRate: number;
+  sampleIndex: number; //last sample of the window
+  lostSamples: number; //lost samples in the window
+  channels: Array<number>;
+  bandPower: Array<Array<number>>; //First array is channels, second array is bands
+};
+
+//counters are totals since the sensor was initialized, times in ms
+export type StreamStats = {
+  dataType: DataType;
+  packets: number;
+  duplicatePackets: number;
+  lostPackets: number; //from package index gaps
+  malformedPackets: number; //too short, dropped
+  lostSamples: number;
+  decodedSamples: number;
+  droppedSamples: number; //dropped because JS did not keep up, sent in lostRanges
+  pendingSamples: number;
+  decodeMs: number;
+  emits: number;
+  emittedSamples: number;
+  emitMs: number;
+  meanLatencyMs: number; //from BLE arrival of the oldest sample of an emit to the end of the emit
+  maxLatencyMs: number;
+  clockDriftPpm: number; //sensor clock against the phone clock, estimated from packet arrival times
+};
+
+export type SensorStats = {
+  deviceMac: string;
+  receivedPackets: number;
+  droppedPackets: number; //dropped because the decoder did not keep up
+  queueDepth: number;
+  maxQueueDepth: number;
+  queueCapacity: number;
+  streams: Array<StreamStats>;
+};
+
+//values in ms, they are the upper bound of a log bucket, within 3%
+export type Percentiles = {
+  count: number;
+  p50: number;
+  p99: number;
+  p999: number;
+  max: number;
+};
+
+export type LatencyPercentiles = {
+  deviceMac: string;
+  intervalMs: number; //since the last reset
+  arrivalInterval: Percentiles; //time between BLE packets
+  decode: Percentiles; //from BLE arrival to the end of decoding
+  delivery: Percentiles; //from BLE arrival of the oldest sample of an emit to the end of the emit
+};
+
+//counters are totals since startMerge
+export type MergedInput = {
+  deviceMac: string;
+  dataType: DataType;
+  channels: Array<number>; //channel indexes in the frames, empty before the input got samples
+  lateSamples: number; //arrived after their frame was sent
+  droppedSamples: number; //dropped because the merge did not keep up
+  gapFrames: number; //frames without a sample of this input
+};
+
+export type PackedMergedData = {
+  frameCount: number;
+  timestampMs: number; //SystemClock.elapsedRealtime() ms of the first frame
+  framePeriodMs: number;
+  skippedFrames: number; //total frames skipped because the merge fell behind
+  inputs: Array<MergedInput>;
+  payload: string; //base64 of little endian float32 values[input][channel][frame]
+};
+
+export type MergedData = {
+  frameCount: number;
+  timestampMs: number; //frame n is at timestampMs + n * framePeriodMs
+  framePeriodMs: number;
+  skippedFrames: number;
+  inputs: Array<MergedInput>;
+  data: Array<Array<Float32Array>>; //First array is input, second is inputs[input].channels, NaN for gaps
+};
+
+//simulated sensor for tests without hardware, every field is optional
+export type SimulationOptions = {
+  eegChannelCount?: number; //0 disables EEG, default 8
+  eegSampleRate?: number; //default 250
+  eegResolutionBits?: number; //8, 16 or 24, default 24
+  eegPackageSampleCount?: number; //samples per packet, default 10
+  ecgChannelCount?: number; //0 disables ECG, default 0
+  ecgSampleRate?: number;
+  ecgResolutionBits?: number;
+  ecgPackageSampleCount?: number;
+  imu?: boolean; //ACC and GYRO at 50Hz, default true
+  impedanceIntervalMs?: number; //0 disables impedance, default 1000
+  speed?: number; //1 is real time, <= 0 is as fast as possible
+  durationMs?: number; //0 runs until stopDataNotification
+  firstPackageIndex?: number; //u16, e.g. 65500 to test the wraparound, default 1
+  lossPercent?: number; //packets lost, default 0
+  lossBurst?: number; //average packets per loss, default 1
+  duplicatePercent?: number;
+  truncatePercent?: number; //malformed packets
+  seed?: number;
 };
 
 export interface Spec extends TurboModule {
@@ -77,6 +270,75 @@ export interface Spec extends TurboModule {
   getBatteryLevel(deviceMac: string): Promise<number>;
   getDeviceInfo(deviceMac: string): Promise<DeviceInfo>;
   getDeviceState(deviceMac: string): DeviceStateEx;
+  setPackedTransport(deviceMac: string, enabled: boolean): boolean;
+  setCombinedTransport(deviceMac: string, enabled: boolean): boolean;
+  setDataBatchPolicy(
+    deviceMac: string,
+    maxLatencyMs: number,
+    maxSamples: number
+  ): boolean;
+  startRecording(deviceMac: string, filePath: string): Promise<boolean>;
+  rotateRecording(deviceMac: string, filePath: string): Promise<boolean>;
+  stopRecording(deviceMac: string): Promise<boolean>;
+  openPlayback(
+    filePath: string,
+    deviceMac: string,
+    speed: number
+  ): Promise<string>;
+  openSimulation(deviceMac: string, options: Object): Promise<string>;
+  closePlayback(deviceMac: string): Promise<boolean>;
+  setFeatureExtraction(
+    deviceMac: string,
+    dataType: number,
+    windowMs: number,
+    hopMs: number,
+    bands: Array<number>,
+    suppressRaw: boolean
+  ): boolean;
+  setDataSubscription(
+    deviceMac: string,
+    dataType: number,
+    channels: Array<number>,
+    fields: Array<string>
+  ): boolean;
+  setDisplayDecimation(
+    deviceMac: string,
+    dataType: number,
+    factor: number,
+    mode: number
+  ): boolean;
+  setSignalFilter(
+    deviceMac: string,
+    dataType: number,
+    notchFrequency: number,
+    highPassFrequency: number,
+    lowPassFrequency: number,
+    replaceData: boolean
+  ): boolean;
+  setHistoryDuration(
+    deviceMac: string,
+    dataType: number,
+    durationMs: number
+  ): boolean;
+  readWindow(
+    deviceMac: string,
+    dataType: number,
+    fromSampleIndex: number,
+    count: number
+  ): PackedSensorData | null;
+  getStats(deviceMac: string): SensorStats | null;
+  setStatsInterval(deviceMac: string, intervalMs: number): boolean;
+  getLatencyPercentiles(
+    deviceMac: string,
+    reset: boolean
+  ): LatencyPercentiles | null;
+  startMerge(
+    deviceMacs: Array<string>,
+    dataTypes: Array<number>,
+    rateHz: number,
+    latencyMs: number
+  ): boolean;
+  stopMerge(): boolean;
 }
 
 export default TurboModuleRegistry.getEnforcing<Spec>(
@@ -0,0 +1,144 @@
+import type {
+  MergedData,
+  PackedCombinedData,
+  PackedMergedData,
+  PackedSection,
+  PackedSensorData,
+  SensorDataBatch,
+} from './NativeSynchronySDKReactNative';
+
+const BASE64_CHARS =
+  'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+const BASE64_LOOKUP = new Uint8Array(128);
+for (let index = 0; index < BASE64_CHARS.length; ++index) {
+  BASE64_LOOKUP[BASE64_CHARS.charCodeAt(index)] = index;
+}
+
+export function decodeBase64(input: string): Uint8Array {
+  let length = input.length;
+  while (length > 0 && input.charAt(length - 1) === '=') {
+    --length;
+  }
+  const bytes = new Uint8Array((length * 3) >> 2);
+  let byteIndex = 0;
+  for (let index = 0; index < length; index += 4) {
+    const a = BASE64_LOOKUP[input.charCodeAt(index)]!;
+    const b = BASE64_LOOKUP[input.charCodeAt(index + 1)]!;
+    const c = BASE64_LOOKUP[input.charCodeAt(index + 2)]!;
+    const d = BASE64_LOOKUP[input.charCodeAt(index + 3)]!;
+    bytes[byteIndex++] = (a << 2) | (b >> 4);
+    if (index + 2 < length) bytes[byteIndex++] = ((b & 0xf) << 4) | (c >> 2);
+    if (index + 3 < length) bytes[byteIndex++] = ((c & 0x3) << 6) | d;
+  }
+  return bytes;
+}
+
+//bits of PackedSensorData.fields, must match DataSubscription.java
+const FIELD_DATA = 1;
+const FIELD_IMPEDANCE = 1 << 1;
+const FIELD_SATURATION = 1 << 2;
+const FIELD_IS_LOST = 1 << 3;
+const FIELD_FILTERED = 1 << 4;
+
+//layout must match sendPackedSensorData in SynchronySDKReactNativeModule.java
+//columns of fields not in the payload are empty, as are isLost flags
+export function decodeSensorDataBatch(
+  packed: PackedSensorData
+): SensorDataBatch {
+  const bytes = decodeBase64(packed.payload);
+  return decodeSection(packed.deviceMac, packed, bytes, 0);
+}
+
+//one batch per data type, in the order of the sections
+export function decodeCombinedData(
+  packed: PackedCombinedData
+): Array<SensorDataBatch> {
+  const bytes = decodeBase64(packed.payload);
+  return packed.sections.map((section) =>
+    decodeSection(packed.deviceMac, section, bytes, section.offset)
+  );
+}
+
+function decodeSection(
+  deviceMac: string,
+  packed: Omit<PackedSection, 'offset'>,
+  bytes: Uint8Array,
+  start: number
+): SensorDataBatch {
+  const sampleCount = packed.sampleCount;
+  const channels = packed.channels;
+  const buffer = bytes.buffer;
+  const columnBytes = sampleCount * 4;
+
+  let offset = start;
+  const sampleIndex = new Int32Array(buffer, offset, sampleCount);
+  offset += columnBytes;
+
+  const fields = packed.fields;
+  const readColumns = (field: number): Array<Float32Array> => {
+    const columns = new Array<Float32Array>(packed.channelCount);
+    for (let index = 0; index < packed.channelCount; ++index) {
+      columns[index] = new Float32Array(0);
+    }
+    if ((fields & field) === 0) {
+      return columns;
+    }
+    channels.forEach((channelIndex) => {
+      columns[channelIndex] = new Float32Array(buffer, offset, sampleCount);
+      offset += columnBytes;
+    });
+    return columns;
+  };
+  const data = readColumns(FIELD_DATA);
+  const impedance = readColumns(FIELD_IMPEDANCE);
+  const saturation = readColumns(FIELD_SATURATION);
+  const filtered =
+    (fields & FIELD_FILTERED) !== 0 ? readColumns(FIELD_FILTERED) : undefined;
+
+  const lostCount = (fields & FIELD_IS_LOST) !== 0 ? sampleCount : 0;
+  const isLost = new Uint8Array(lostCount);
+  for (let index = 0; index < lostCount; ++index) {
+    isLost[index] = (bytes[offset + (index >> 3)]! >> (index & 7)) & 1;
+  }
+
+  return {
+    deviceMac: deviceMac,
+    dataType: packed.dataType,
+    sampleRate: packed.sampleRate,
+    channelCount: packed.channelCount,
+    packageSampleCount: packed.packageSampleCount,
+    sampleCount: sampleCount,
+    sampleIndex: sampleIndex,
+    data: data,
+    impedance: impedance,
+    saturation: saturation,
+    filtered: filtered,
+    isLost: isLost,
+    lostRanges: packed.lostRanges,
+    timestampMs: packed.timestampMs,
+    timestampSampleIndex: packed.timestampSampleIndex,
+    samplePeriodMs: packed.samplePeriodMs,
+  };
+}
+
+//layout must match sendMergedFrames in SynchronySDKReactNativeModule.java
+export function decodeMergedData(packed: PackedMergedData): MergedData {
+  const frameCount = packed.frameCount;
+  const buffer = decodeBase64(packed.payload).buffer;
+  let offset = 0;
+  const data = packed.inputs.map((input) =>
+    input.channels.map(() => {
+      const column = new Float32Array(buffer, offset, frameCount);
+      offset += frameCount * 4;
+      return column;
+    })
+  );
+  return {
+    frameCount: frameCount,
+    timestampMs: packed.timestampMs,
+    framePeriodMs: packed.framePeriodMs,
+    skippedFrames: packed.skippedFrames,
+    inputs: packed.inputs,
+    data: data,
+  };
+}
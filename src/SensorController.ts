@@ -3,21 +3,40 @@ import type { EmitterSubscription } from 'react-native';
 import { NativeEventEmitter } from 'react-native';
 import SensorProfile from './SensorProfile';
 import { SynchronySDKReactNative } from './ModuleResolver';
+import {
+  decodeCombinedData,
+  decodeMergedData,
+  decodeSensorDataBatch,
+} from './PackedData';
 
 import {
   DeviceStateEx,
   type BLEDevice,
+  type DataType,
+  type DeviceListDelta,
   type EventResult,
+  type FeatureData,
+  type MergedData,
+  type PackedCombinedData,
+  type PackedMergedData,
+  type PackedSensorData,
   type SensorData,
+  type SensorStats,
+  type SimulationOptions,
 } from './NativeSynchronySDKReactNative';
 
 export default class SensorController {
   private static _instance: SensorController;
   private sensorProfiles: Array<SensorProfile>;
   private sensorProfileMap: Map<string, SensorProfile>;
+  //devices of the current scan by Address, kept from GOT_DEVICE_DELTA
+  private scannedDevices: Map<string, BLEDevice>;
 
   protected nativeEventEmitter: NativeEventEmitter;
   private onDevice: EmitterSubscription | undefined;
+  private onDeviceListDelta: EmitterSubscription | undefined;
+  private onDeviceDelta: EmitterSubscription | undefined;
+  private onMergedData: EmitterSubscription | undefined;
 
   public static get Instance() {
     return this._instance || (this._instance = new this());
@@ -26,6 +45,7 @@ export default class SensorController {
   private constructor() {
     this.sensorProfileMap = new Map<string, SensorProfile>();
     this.sensorProfiles = new Array<SensorProfile>(0);
+    this.scannedDevices = new Map<string, BLEDevice>();
     this.nativeEventEmitter = new NativeEventEmitter(SynchronySDKReactNative);
     this.nativeEventEmitter.addListener(
       'STATE_CHANGED',
@@ -34,10 +54,43 @@ export default class SensorController {
       }
     );
 
+    //registered before the callbacks so they see the updated devices
+    this.nativeEventEmitter.addListener(
+      'GOT_DEVICE_DELTA',
+      (delta: DeviceListDelta) => {
+        this.applyDeviceDelta(delta);
+      }
+    );
+
     this.nativeEventEmitter.addListener('GOT_DATA', (data: SensorData) => {
       this.dispatchData('GOT_DATA', data);
     });
 
+    this.nativeEventEmitter.addListener(
+      'GOT_PACKED_DATA',
+      (data: PackedSensorData) => {
+        this.dispatchPackedData('GOT_PACKED_DATA', data);
+      }
+    );
+
+    this.nativeEventEmitter.addListener(
+      'GOT_COMBINED_DATA',
+      (data: PackedCombinedData) => {
+        this.dispatchCombinedData('GOT_COMBINED_DATA', data);
+      }
+    );
+
+    this.nativeEventEmitter.addListener(
+      'GOT_FEATURES',
+      (data: FeatureData) => {
+        this.dispatchFeatures('GOT_FEATURES', data);
+      }
+    );
+
+    this.nativeEventEmitter.addListener('GOT_STATS', (stats: SensorStats) => {
+      this.dispatchStats('GOT_STATS', stats);
+    });
+
     this.nativeEventEmitter.addListener('GOT_ERROR', (error: EventResult) => {
       this.dispatchEvent('GOT_ERROR', error);
     });
@@ -63,11 +116,71 @@ export default class SensorController {
         callback(deviceList);
       }
     );
+    //android sends changes only, the callback gets the whole list
+    this.onDeviceListDelta = this.nativeEventEmitter.addListener(
+      'GOT_DEVICE_DELTA',
+      () => {
+        callback(Array.from(this.scannedDevices.values()));
+      }
+    );
   }
 
   private RemoveOnDeviceCallback() {
     if (this.onDevice !== undefined) this.onDevice.remove();
     this.onDevice = undefined;
+    if (this.onDeviceListDelta !== undefined) this.onDeviceListDelta.remove();
+    this.onDeviceListDelta = undefined;
+  }
+
+  //changes of the scanned devices, at most once a second, android only
+  public set onDeviceDeltaCallback(
+    callback: (delta: DeviceListDelta) => void
+  ) {
+    if (callback) {
+      this.AddOnDeviceDeltaCallback(callback);
+    } else {
+      this.RemoveOnDeviceDeltaCallback();
+    }
+  }
+
+  private AddOnDeviceDeltaCallback(
+    callback: (delta: DeviceListDelta) => void
+  ) {
+    this.RemoveOnDeviceDeltaCallback();
+    this.onDeviceDelta = this.nativeEventEmitter.addListener(
+      'GOT_DEVICE_DELTA',
+      (delta: DeviceListDelta) => {
+        callback(delta);
+      }
+    );
+  }
+
+  private RemoveOnDeviceDeltaCallback() {
+    if (this.onDeviceDelta !== undefined) this.onDeviceDelta.remove();
+    this.onDeviceDelta = undefined;
+  }
+
+  public set onMergedDataCallback(callback: (data: MergedData) => void) {
+    if (callback) {
+      this.AddOnMergedDataCallback(callback);
+    } else {
+      this.RemoveOnMergedDataCallback();
+    }
+  }
+
+  private AddOnMergedDataCallback(callback: (data: MergedData) => void) {
+    this.RemoveOnMergedDataCallback();
+    this.onMergedData = this.nativeEventEmitter.addListener(
+      'GOT_MERGED_DATA',
+      (data: PackedMergedData) => {
+        callback(decodeMergedData(data));
+      }
+    );
+  }
+
+  private RemoveOnMergedDataCallback() {
+    if (this.onMergedData !== undefined) this.onMergedData.remove();
+    this.onMergedData = undefined;
   }
 
   /////////////////////////////////////////////////////////
@@ -87,6 +200,7 @@ export default class SensorController {
         reject('please search after search return');
         return;
       }
+      this.scannedDevices.clear();
 
       this._startScan(periodInMs)
         .then((result: boolean) => {
@@ -145,6 +259,72 @@ export default class SensorController {
     });
     return devices;
   };
+  //replay a recording as virtual device, data is sent after startDataNotification
+  //speed 1 is real time, 0 replays as fast as possible, deviceMac defaults to the recorded device
+  openPlayback = async (
+    filePath: string,
+    speed: number,
+    deviceMac: string = ''
+  ): Promise<SensorProfile | undefined> => {
+    const playbackMac = await SynchronySDKReactNative.openPlayback(
+      filePath,
+      deviceMac,
+      speed
+    );
+    if (!playbackMac) {
+      return undefined;
+    }
+    return this.requireSensor({
+      Name: 'Playback',
+      Address: playbackMac,
+      RSSI: 0,
+    });
+  };
+
+  //virtual sensor generating frames on the native side, close it with closePlayback
+  openSimulation = async (
+    deviceMac: string,
+    options: SimulationOptions = {}
+  ): Promise<SensorProfile | undefined> => {
+    const simulationMac = await SynchronySDKReactNative.openSimulation(
+      deviceMac,
+      options
+    );
+    if (!simulationMac) {
+      return undefined;
+    }
+    return this.requireSensor({
+      Name: 'Simulation',
+      Address: simulationMac,
+      RSSI: 0,
+    });
+  };
+
+  //aligns the streams of several sensors on drift corrected timestamps and sends frames at rateHz to onMergedDataCallback
+  //frames are sent latencyMs late so slow packets still make it, merged streams are not sent to onDataCallback
+  //inputs must be notifying, one merge runs at a time, android only
+  startMerge = (
+    inputs: Array<{ sensor: SensorProfile; dataType: DataType }>,
+    rateHz: number,
+    latencyMs: number = 100
+  ): boolean => {
+    return SynchronySDKReactNative.startMerge(
+      inputs.map((input) => input.sensor.BLEDevice.Address),
+      inputs.map((input) => input.dataType),
+      rateHz,
+      latencyMs
+    );
+  };
+
+  stopMerge = (): boolean => {
+    return SynchronySDKReactNative.stopMerge();
+  };
+
+  closePlayback = async (sensorProfile: SensorProfile): Promise<boolean> => {
+    return SynchronySDKReactNative.closePlayback(
+      sensorProfile.BLEDevice.Address
+    );
+  };
   ////////////////////////////////////////////
 
   private async requestPermissionAndroid(): Promise<boolean> {
@@ -188,6 +368,18 @@ export default class SensorController {
     return SynchronySDKReactNative.stopScan();
   }
 
+  private applyDeviceDelta(delta: DeviceListDelta) {
+    delta.removed.forEach((address) => {
+      this.scannedDevices.delete(address);
+    });
+    delta.added.forEach((device) => {
+      this.scannedDevices.set(device.Address, device);
+    });
+    delta.updated.forEach((device) => {
+      this.scannedDevices.set(device.Address, device);
+    });
+  }
+
   private dispatchEvent(event: String, eventResult: EventResult) {
     var device = this.getSensor(eventResult.deviceMac);
     if (device) {
@@ -205,4 +397,32 @@ export default class SensorController {
       device.emitOnData(sensorData);
     }
   }
+
+  private dispatchFeatures(_: String, featureData: FeatureData) {
+    var device = this.getSensor(featureData.deviceMac);
+    if (device) {
+      device.emitOnFeature(featureData);
+    }
+  }
+
+  private dispatchStats(_: String, stats: SensorStats) {
+    var device = this.getSensor(stats.deviceMac);
+    if (device) {
+      device.emitOnStats(stats);
+    }
+  }
+
+  private dispatchPackedData(_: String, packedData: PackedSensorData) {
+    var device = this.getSensor(packedData.deviceMac);
+    if (device) {
+      device.emitOnDataBatch(decodeSensorDataBatch(packedData));
+    }
+  }
+
+  private dispatchCombinedData(_: String, combinedData: PackedCombinedData) {
+    var device = this.getSensor(combinedData.deviceMac);
+    if (device) {
+      device.emitOnCombinedData(decodeCombinedData(combinedData));
+    }
+  }
 }
@@ -3,9 +3,16 @@ import { SynchronySDKReactNative } from './ModuleResolver';
 import {
   DeviceStateEx,
   type BLEDevice,
+  type DecimationMode,
+  type FeatureData,
   type DeviceInfo,
   type SensorData,
+  type SensorDataBatch,
+  type SensorStats,
+  type LatencyPercentiles,
 } from './NativeSynchronySDKReactNative';
+import { decodeSensorDataBatch } from './PackedData';
+import { fillLostSamples } from './LostSamples';
 
 export default class SensorProfile {
   private _supportEEG: boolean;
@@ -17,6 +24,7 @@ export default class SensorProfile {
   private _isDataTransfering: boolean;
   private _isSwitchDataTransfering: boolean;
   private _powerCache: number;
+  private _fillLostSamples: boolean;
   private _deviceInfo: DeviceInfo | undefined;
   private _device: BLEDevice;
   private _powerTimer: NodeJS.Timeout | undefined;
@@ -26,6 +34,18 @@ export default class SensorProfile {
   private _onData:
     | ((sensor: SensorProfile, signalData: SensorData) => void)
     | undefined;
+  private _onDataBatch:
+    | ((sensor: SensorProfile, dataBatch: SensorDataBatch) => void)
+    | undefined;
+  private _onCombinedData:
+    | ((sensor: SensorProfile, dataBatches: Array<SensorDataBatch>) => void)
+    | undefined;
+  private _onFeature:
+    | ((sensor: SensorProfile, featureData: FeatureData) => void)
+    | undefined;
+  private _onStats:
+    | ((sensor: SensorProfile, stats: SensorStats) => void)
+    | undefined;
   private _onStateChange:
     | ((sensor: SensorProfile, newstate: DeviceStateEx) => void)
     | undefined;
@@ -45,6 +65,7 @@ export default class SensorProfile {
       this._isSwitchDataTransfering =
         false;
     this._powerCache = -1;
+    this._fillLostSamples = false;
     this._deviceInfo = undefined;
     if (!SynchronySDKReactNative.initSensor(device.Address)) {
       console.error(
@@ -108,7 +129,70 @@ export default class SensorProfile {
 
   public emitOnData(signalData: SensorData) {
     if (this._onData) {
-      this._onData(this, signalData);
+      this._onData(
+        this,
+        this._fillLostSamples ? fillLostSamples(signalData) : signalData
+      );
+    }
+  }
+
+  //true adds lost samples to onDataCallback, a sample per lost sample and channel, false leaves them in signalData.lostRanges
+  public set fillLostSamples(fill: boolean) {
+    this._fillLostSamples = fill;
+  }
+
+  public get fillLostSamples(): boolean {
+    return this._fillLostSamples;
+  }
+
+  public set onDataBatchCallback(
+    callback: (sensor: SensorProfile, dataBatch: SensorDataBatch) => void
+  ) {
+    this._onDataBatch = callback;
+  }
+
+  public emitOnDataBatch(dataBatch: SensorDataBatch) {
+    if (this._onDataBatch) {
+      this._onDataBatch(this, dataBatch);
+    }
+  }
+
+  public set onCombinedDataCallback(
+    callback: (
+      sensor: SensorProfile,
+      dataBatches: Array<SensorDataBatch>
+    ) => void
+  ) {
+    this._onCombinedData = callback;
+  }
+
+  public emitOnCombinedData(dataBatches: Array<SensorDataBatch>) {
+    if (this._onCombinedData) {
+      this._onCombinedData(this, dataBatches);
+    }
+  }
+
+  public set onFeatureCallback(
+    callback: (sensor: SensorProfile, featureData: FeatureData) => void
+  ) {
+    this._onFeature = callback;
+  }
+
+  public emitOnFeature(featureData: FeatureData) {
+    if (this._onFeature) {
+      this._onFeature(this, featureData);
+    }
+  }
+
+  public set onStatsCallback(
+    callback: (sensor: SensorProfile, stats: SensorStats) => void
+  ) {
+    this._onStats = callback;
+  }
+
+  public emitOnStats(stats: SensorStats) {
+    if (this._onStats) {
+      this._onStats(this, stats);
     }
   }
 
@@ -318,6 +402,186 @@ export default class SensorProfile {
       return false;
     }
   };
+
+  //packed transport delivers data to onDataBatchCallback instead of onDataCallback
+  setPackedTransport = (enabled: boolean): boolean => {
+    return SynchronySDKReactNative.setPackedTransport(
+      this._device.Address,
+      enabled
+    );
+  };
+
+  //combined transport delivers all data types of an emit to onCombinedDataCallback at once,
+  //instead of an onDataCallback or onDataBatchCallback per data type
+  setCombinedTransport = (enabled: boolean): boolean => {
+    return SynchronySDKReactNative.setCombinedTransport(
+      this._device.Address,
+      enabled
+    );
+  };
+
+  //send data every maxLatencyMs or after maxSamples, whichever comes first, 0 disables batching
+  //returns false when maxLatencyMs > 10000 or maxSamples > 65536
+  setDataBatchPolicy = (maxLatencyMs: number, maxSamples: number): boolean => {
+    return SynchronySDKReactNative.setDataBatchPolicy(
+      this._device.Address,
+      maxLatencyMs,
+      maxSamples
+    );
+  };
+
+  //record raw samples of all streams to filePath in native code
+  startRecording = async (filePath: string): Promise<boolean> => {
+    try {
+      return await SynchronySDKReactNative.startRecording(
+        this._device.Address,
+        filePath
+      );
+    } catch (error) {
+      this.emitError(error);
+      return false;
+    }
+  };
+
+  //close current recording file and continue in filePath without losing samples
+  rotateRecording = async (filePath: string): Promise<boolean> => {
+    try {
+      return await SynchronySDKReactNative.rotateRecording(
+        this._device.Address,
+        filePath
+      );
+    } catch (error) {
+      this.emitError(error);
+      return false;
+    }
+  };
+
+  stopRecording = async (): Promise<boolean> => {
+    try {
+      return await SynchronySDKReactNative.stopRecording(this._device.Address);
+    } catch (error) {
+      this.emitError(error);
+      return false;
+    }
+  };
+
+  //band power of the last windowMs every hopMs to onFeatureCallback, bands are low, high pairs in Hz
+  //suppressRaw stops sending samples of dataType, windowMs 0 stops band power
+  setFeatureExtraction = (
+    dataType: number,
+    windowMs: number,
+    hopMs: number,
+    bands: Array<number>,
+    suppressRaw: boolean
+  ): boolean => {
+    return SynchronySDKReactNative.setFeatureExtraction(
+      this._device.Address,
+      dataType,
+      windowMs,
+      hopMs,
+      bands,
+      suppressRaw
+    );
+  };
+
+  //only send channels and sample fields JS uses, fields are names of Sample keys: data, impedance, saturation, isLost, filtered
+  //an empty array sends all, sampleIndex is always sent, history and readWindow keep all channels and fields
+  setDataSubscription = (
+    dataType: number,
+    channels: Array<number>,
+    fields: Array<string>
+  ): boolean => {
+    return SynchronySDKReactNative.setDataSubscription(
+      this._device.Address,
+      dataType,
+      channels,
+      fields
+    );
+  };
+
+  //send every factor-th sample after a low pass filter, or min and max of every factor samples, 1 sends the full rate
+  //history, readWindow and recording keep the full rate
+  setDisplayDecimation = (
+    dataType: number,
+    factor: number,
+    mode: DecimationMode
+  ): boolean => {
+    return SynchronySDKReactNative.setDisplayDecimation(
+      this._device.Address,
+      dataType,
+      factor,
+      mode
+    );
+  };
+
+  //notch and band pass filter in native code, frequencies in Hz, 0 disables a stage and all 0 removes the filter
+  //replaceData writes filtered values to data, otherwise they are sent in filtered
+  setSignalFilter = (
+    dataType: number,
+    notchFrequency: number,
+    highPassFrequency: number,
+    lowPassFrequency: number,
+    replaceData: boolean
+  ): boolean => {
+    return SynchronySDKReactNative.setSignalFilter(
+      this._device.Address,
+      dataType,
+      notchFrequency,
+      highPassFrequency,
+      lowPassFrequency,
+      replaceData
+    );
+  };
+
+  //keep the last durationMs of samples in native memory for readWindow, 0 disables history
+  setHistoryDuration = (dataType: number, durationMs: number): boolean => {
+    return SynchronySDKReactNative.setHistoryDuration(
+      this._device.Address,
+      dataType,
+      durationMs
+    );
+  };
+
+  //read count samples starting at fromSampleIndex, negative fromSampleIndex reads the latest samples
+  readWindow = (
+    dataType: number,
+    fromSampleIndex: number,
+    count: number
+  ): SensorDataBatch | undefined => {
+    const packedData = SynchronySDKReactNative.readWindow(
+      this._device.Address,
+      dataType,
+      fromSampleIndex,
+      count
+    );
+    if (!packedData) {
+      return undefined;
+    }
+    return decodeSensorDataBatch(packedData);
+  };
+
+  //packet, sample and latency counters of the native data path
+  getStats = (): SensorStats | undefined => {
+    const stats = SynchronySDKReactNative.getStats(this._device.Address);
+    return stats ?? undefined;
+  };
+
+  //p50 / p99 / p999 / max of the data path since the last reset, reset starts a new interval
+  getLatencyPercentiles = (reset: boolean): LatencyPercentiles | undefined => {
+    const percentiles = SynchronySDKReactNative.getLatencyPercentiles(
+      this._device.Address,
+      reset
+    );
+    return percentiles ?? undefined;
+  };
+
+  //send stats to onStatsCallback every intervalMs, 0 stops it
+  setStatsInterval = (intervalMs: number): boolean => {
+    return SynchronySDKReactNative.setStatsInterval(
+      this._device.Address,
+      intervalMs
+    );
+  };
   ////////////////////////////////////////////////////////
 
   private async _connect(): Promise<boolean> {
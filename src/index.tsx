@@ -1,14 +1,46 @@
-import { DeviceStateEx, DataType } from './NativeSynchronySDKReactNative';
+import {
+  DeviceStateEx,
+  DataType,
+  DecimationMode,
+} from './NativeSynchronySDKReactNative';
 
 import type {
   BLEDevice,
+  DeviceListDelta,
+  FeatureData,
+  LostRange,
   Sample,
   SensorData,
+  SensorDataBatch,
+  SensorStats,
+  StreamStats,
+  LatencyPercentiles,
+  Percentiles,
+  SimulationOptions,
+  MergedInput,
+  MergedData,
 } from './NativeSynchronySDKReactNative';
 
-export { DeviceStateEx, DataType };
+export { DeviceStateEx, DataType, DecimationMode };
+
+export type {
+  BLEDevice,
+  DeviceListDelta,
+  FeatureData,
+  LostRange,
+  Sample,
+  SensorData,
+  SensorDataBatch,
+  SensorStats,
+  StreamStats,
+  LatencyPercentiles,
+  Percentiles,
+  SimulationOptions,
+  MergedInput,
+  MergedData,
+};
 
-export type { BLEDevice, Sample, SensorData };
+export { fillLostSamples } from './LostSamples';
 
 import SensorProfile from './SensorProfile';
 export { SensorProfile };